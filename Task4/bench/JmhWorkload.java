@@ -0,0 +1,122 @@
+import jmh.MeshWorkload;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+// Реализация операций для JMH-бенчмарков (пакет jmh) поверх классов приложения
+public class JmhWorkload implements MeshWorkload {
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 600;
+    private static final int CLICKS = 64;
+
+    private Model3D source;
+    private final Projection projection = new Projection();
+    private final ModelRenderer renderer = new ModelRenderer();
+    private final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    private final MeshPicker picker = new MeshPicker();
+    private final int[] clickX = new int[CLICKS];
+    private final int[] clickY = new int[CLICKS];
+
+    private Model3D edited;
+    private SelectionSet selectedVertices;
+    private SelectionSet selectedPolygons;
+
+    @Override
+    public void generate(int faces) {
+        source = SyntheticMesh.sphere(faces);
+        renderer.setSize(WIDTH, HEIGHT);
+        renderer.setModel(source);
+        projection.update(0.3, 0.5, 100.0);
+
+        // Клики по кругу внутри проекции сферы
+        for (int i = 0; i < CLICKS; i++) {
+            double angle = 2 * Math.PI * i / CLICKS;
+            clickX[i] = (int) (Math.cos(angle) * 60);
+            clickY[i] = (int) (Math.sin(angle) * 60);
+        }
+    }
+
+    @Override
+    public File writeSource(File directory) throws IOException {
+        File file = new File(directory, "task4-bench-" + source.getFaceCount() + ".obj");
+        if (!file.isFile()) {
+            File temp = new File(directory, file.getName() + ".tmp");
+            SyntheticMesh.writeObj(source, temp);
+            if (!temp.renameTo(file)) throw new IOException("Cannot create " + file);
+        }
+        return file;
+    }
+
+    @Override
+    public Object read(File file) throws IOException {
+        return ObjReader.read(file);
+    }
+
+    @Override
+    public void write(File file) throws IOException {
+        ObjWriter.write(source, file);
+    }
+
+    @Override
+    public Object project() {
+        projection.project(source);
+        return projection;
+    }
+
+    @Override
+    public Object paint(boolean depthBuffer) {
+        renderer.setDepthBuffer(depthBuffer);
+        Graphics2D g = image.createGraphics();
+        try {
+            renderer.paint(g);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    @Override
+    public int pickVertex(int click) {
+        return picker.pickVertex(source, projection, clickX[click % CLICKS], clickY[click % CLICKS], 10);
+    }
+
+    @Override
+    public int pickFace(int click) {
+        return picker.pickFace(source, projection, clickX[click % CLICKS], clickY[click % CLICKS]);
+    }
+
+    @Override
+    public int pickFaceCold() {
+        return new MeshPicker().pickFace(source, projection, clickX[0], clickY[0]);
+    }
+
+    @Override
+    public void prepareDelete() {
+        edited = new Model3D();
+        edited.setMesh(Arrays.copyOf(source.getCoords(), source.getVertexCount() * 3), source.getVertexCount(),
+                Arrays.copyOf(source.getFaceOffsets(), source.getFaceCount() + 1),
+                Arrays.copyOf(source.getFaceIndices(), source.getIndexCount()), source.getFaceCount());
+
+        Random random = new Random(42);
+        selectedVertices = new SelectionSet();
+        selectedPolygons = new SelectionSet();
+        for (int i = 0; i < source.getVertexCount() / 100; i++) {
+            selectedVertices.add(random.nextInt(source.getVertexCount()));
+        }
+        for (int i = 0; i < source.getFaceCount() / 100; i++) {
+            selectedPolygons.add(random.nextInt(source.getFaceCount() / 2));
+        }
+    }
+
+    @Override
+    public int deleteSelectedParts() {
+        EditHistory history = new EditHistory(Long.MAX_VALUE);
+        history.deleteVertices(edited, selectedVertices.toBitSet());
+        history.deletePolygons(edited, selectedPolygons.toBitSet());
+        return edited.getFaceCount();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.DecimalFormat;
+
+// Прежняя реализация ObjWriter на String.format и DecimalFormat — эталон для сравнения
+class LegacyObjWriter {
+    public static void write(Model3D model, File file) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+
+        // Добавляем комментарий с информацией
+        writer.write("# Exported from ModelViewer\n");
+        writer.write("# Vertices: " + model.getVertexCount() + "\n");
+        writer.write("# Faces: " + model.getFaceCount() + "\n\n");
+
+        // Записываем вершины с высокой точностью
+        DecimalFormat df = new DecimalFormat("0.######");
+        df.setDecimalSeparatorAlwaysShown(false);
+
+        for (int i = 0; i < model.getVertexCount(); i++) {
+            writer.write(String.format("v %s %s %s\n",
+                    df.format(model.getX(i)),
+                    df.format(model.getY(i)),
+                    df.format(model.getZ(i))));
+        }
+
+        writer.write("\n");
+
+        // Записываем полигоны с текстурными координатами и нормалями
+        for (int f = 0; f < model.getFaceCount(); f++) {
+            writer.write("f");
+            for (int j = 0; j < model.getFaceSize(f); j++) {
+                // Формат: вершина/текстура/нормаль
+                writer.write(" " + (model.getFaceVertex(f, j) + 1) + "//");
+            }
+            writer.write("\n");
+        }
+
+        writer.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+import java.io.File;
+import java.io.IOException;
+
+// Замер скорости чтения OBJ: новый ObjReader против прежней реализации на split()
+// Запуск: java ObjReaderBenchmark [количество полигонов]
+public class ObjReaderBenchmark {
+    public static void main(String[] args) throws IOException {
+        int faces = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        File file = File.createTempFile("bench", ".obj");
+        file.deleteOnExit();
+        SyntheticMesh.writeObj(SyntheticMesh.sphere(faces), file);
+        double megabytes = file.length() / (1024.0 * 1024.0);
+        System.out.printf("File: %.1f MB, %d faces%n", megabytes, faces);
+
+        // Проверка, что модель получается такой же, как раньше
+        Model3D expected = LegacyObjReader.read(file);
+        Model3D actual = ObjReader.read(file);
+        if (!sameModel(expected, actual)) {
+            throw new IllegalStateException("ObjReader result differs from the legacy reader");
+        }
+
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            ObjReader.read(file);
+            double fast = (System.nanoTime() - start) / 1e9;
+
+            start = System.nanoTime();
+            LegacyObjReader.read(file);
+            double legacy = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("Run %d: ObjReader %.1f MB/s, legacy %.1f MB/s%n",
+                    run + 1, megabytes / fast, megabytes / legacy);
+        }
+    }
+
+    static boolean sameModel(Model3D a, Model3D b) {
+        if (a.getVertexCount() != b.getVertexCount() || a.getFaceCount() != b.getFaceCount()) return false;
+        for (int i = 0; i < a.getVertexCount(); i++) {
+            if (Float.floatToRawIntBits(a.getX(i)) != Float.floatToRawIntBits(b.getX(i))
+                    || Float.floatToRawIntBits(a.getY(i)) != Float.floatToRawIntBits(b.getY(i))
+                    || Float.floatToRawIntBits(a.getZ(i)) != Float.floatToRawIntBits(b.getZ(i))) return false;
+        }
+        for (int f = 0; f < a.getFaceCount(); f++) {
+            if (a.getFaceSize(f) != b.getFaceSize(f)) return false;
+            for (int j = 0; j < a.getFaceSize(f); j++) {
+                if (a.getFaceVertex(f, j) != b.getFaceVertex(f, j)) return false;
+            }
+        }
+        return true;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,40 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+// Замер скорости записи OBJ: новый ObjWriter против прежней реализации на String.format
+// Запуск: java ObjWriterBenchmark [количество полигонов]
+public class ObjWriterBenchmark {
+    public static void main(String[] args) throws IOException {
+        int faces = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        Model3D model = SyntheticMesh.sphere(faces);
+        File fastFile = File.createTempFile("bench-fast", ".obj");
+        File legacyFile = File.createTempFile("bench-legacy", ".obj");
+        fastFile.deleteOnExit();
+        legacyFile.deleteOnExit();
+
+        // Проверка, что файл получается байт в байт таким же, как раньше
+        ObjWriter.write(model, fastFile);
+        LegacyObjWriter.write(model, legacyFile);
+        if (!Arrays.equals(Files.readAllBytes(fastFile.toPath()), Files.readAllBytes(legacyFile.toPath()))) {
+            throw new IllegalStateException("ObjWriter output differs from the legacy writer");
+        }
+        double megabytes = fastFile.length() / (1024.0 * 1024.0);
+        System.out.printf("Model: %d vertices, %d faces, %.1f MB of OBJ%n",
+                model.getVertexCount(), model.getFaceCount(), megabytes);
+
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            ObjWriter.write(model, fastFile);
+            double fast = (System.nanoTime() - start) / 1e9;
+
+            start = System.nanoTime();
+            LegacyObjWriter.write(model, legacyFile);
+            double legacy = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("Run %d: ObjWriter %.2f s (%.1f MB/s), legacy %.2f s (%.1f MB/s)%n",
+                    run + 1, fast, megabytes / fast, legacy, megabytes / legacy);
+        }
+    }
+}
\ No newline at end of file
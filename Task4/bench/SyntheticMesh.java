@@ -0,0 +1,58 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+
+// Генерация синтетических моделей для замеров: регулярная сетка на сфере
+class SyntheticMesh {
+    // Сфера из примерно faces треугольников
+    public static Model3D sphere(int faces) {
+        int rings = Math.max(2, (int) Math.sqrt(faces / 4.0));
+        int segments = Math.max(3, faces / (2 * rings));
+        Model3D model = new Model3D((rings + 1) * segments, rings * segments * 2, rings * segments * 6);
+        Random random = new Random(42);
+
+        for (int r = 0; r <= rings; r++) {
+            double theta = Math.PI * r / rings;
+            for (int s = 0; s < segments; s++) {
+                double phi = 2 * Math.PI * s / segments;
+                double radius = 1.0 + random.nextDouble() * 0.01;
+                model.addVertex((float) (radius * Math.sin(theta) * Math.cos(phi)),
+                        (float) (radius * Math.cos(theta)),
+                        (float) (radius * Math.sin(theta) * Math.sin(phi)));
+            }
+        }
+        for (int r = 0; r < rings; r++) {
+            for (int s = 0; s < segments; s++) {
+                int a = r * segments + s;
+                int b = r * segments + (s + 1) % segments;
+                int c = a + segments;
+                int d = b + segments;
+                model.addFace(a, c, b);
+                model.addFace(b, c, d);
+            }
+        }
+        return model;
+    }
+
+    // Запись модели в OBJ в типичном для сканеров виде (6 знаков, v/vt/vn)
+    public static File writeObj(Model3D model, File file) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            writer.write("# synthetic mesh\n");
+            for (int i = 0; i < model.getVertexCount(); i++) {
+                writer.write(String.format(Locale.ROOT, "v %.6f %.6f %.6f\n", model.getX(i), model.getY(i), model.getZ(i)));
+            }
+            for (int f = 0; f < model.getFaceCount(); f++) {
+                writer.write("f");
+                for (int j = 0; j < model.getFaceSize(f); j++) {
+                    int index = model.getFaceVertex(f, j) + 1;
+                    writer.write(" " + index + "/" + index + "/" + index);
+                }
+                writer.write("\n");
+            }
+        }
+        return file;
+    }
+}
\ No newline at end of file
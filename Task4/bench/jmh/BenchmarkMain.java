@@ -0,0 +1,10 @@
+package jmh;
+
+// Запуск всех JMH-бенчмарков модуля bench (аргументы как у org.openjdk.jmh.Main,
+// например "RenderBenchmark -p faces=1000000"). В IDE нужно включить обработку аннотаций,
+// чтобы jmh-generator-annprocess сгенерировал классы бенчмарков
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Удаление 1% вершин и 1% полигонов с записью в историю правок (как deleteSelectedParts).
+// Каждый вызов работает со свежей копией модели, копирование в замер не входит
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-Djava.awt.headless=true"})
+public class EditBenchmark {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int faces;
+
+    private MeshWorkload workload;
+
+    @Setup
+    public void setup() {
+        workload = MeshWorkload.create(faces);
+    }
+
+    @Setup(Level.Invocation)
+    public void copyModel() {
+        workload.prepareDelete();
+    }
+
+    @Benchmark
+    public int deleteSelectedParts() {
+        return workload.deleteSelectedParts();
+    }
+}
\ No newline at end of file
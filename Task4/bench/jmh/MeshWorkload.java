@@ -0,0 +1,49 @@
+package jmh;
+
+import java.io.File;
+import java.io.IOException;
+
+// Операции над моделью, которые замеряют бенчмарки.
+// Классы приложения лежат в пакете по умолчанию, а JMH не принимает бенчмарки без пакета,
+// поэтому реализация (JmhWorkload) находится рядом с приложением и подключается по имени
+public interface MeshWorkload {
+    // Синтетическая сфера примерно из faces треугольников и панель 800x600 для отрисовки
+    void generate(int faces);
+
+    // OBJ-файл с текущей моделью в каталоге directory (готовый файл того же размера переиспользуется)
+    File writeSource(File directory) throws IOException;
+
+    Object read(File file) throws IOException;
+
+    void write(File file) throws IOException;
+
+    // Проекция всех вершин, как в начале каждого кадра
+    Object project();
+
+    // Полная отрисовка панели в изображение вне экрана
+    Object paint(boolean depthBuffer);
+
+    // Выбор в точках клика по кругу; иерархия для выбора строится при первом вызове
+    int pickVertex(int click);
+
+    int pickFace(int click);
+
+    // Выбор полигона на свежем экземпляре: построение иерархии и сам выбор
+    int pickFaceCold();
+
+    // Копия исходной модели и выбор 1% вершин и 1% полигонов для удаления
+    void prepareDelete();
+
+    // Удаление выбранного, как в ModelViewer.deleteSelectedParts
+    int deleteSelectedParts();
+
+    static MeshWorkload create(int faces) {
+        try {
+            MeshWorkload workload = (MeshWorkload) Class.forName("JmhWorkload").getDeclaredConstructor().newInstance();
+            workload.generate(faces);
+            return workload;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("JmhWorkload is not on the classpath", e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,57 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Чтение и запись OBJ (ObjReader.read, ObjWriter.write)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-Djava.awt.headless=true"})
+public class ObjIoBenchmark {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int faces;
+
+    private MeshWorkload workload;
+    private File source;
+    private File target;
+
+    @Setup
+    public void setup() throws IOException {
+        workload = MeshWorkload.create(faces);
+        File directory = new File(System.getProperty("java.io.tmpdir"));
+        source = workload.writeSource(directory);
+        target = File.createTempFile("task4-bench-out", ".obj", directory);
+    }
+
+    @TearDown
+    public void tearDown() {
+        target.delete();
+    }
+
+    @Benchmark
+    public Object read() throws IOException {
+        return workload.read(source);
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        workload.write(target);
+    }
+}
\ No newline at end of file
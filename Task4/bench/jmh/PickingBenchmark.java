@@ -0,0 +1,55 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Выбор вершины и полигона щелчком; pickFaceCold включает построение иерархии
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-Djava.awt.headless=true"})
+public class PickingBenchmark {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int faces;
+
+    private MeshWorkload workload;
+    private int click;
+
+    @Setup
+    public void setup() {
+        workload = MeshWorkload.create(faces);
+        workload.project();
+        // Иерархии строятся до замеров
+        workload.pickVertex(0);
+        workload.pickFace(0);
+    }
+
+    @Benchmark
+    public int pickVertex() {
+        return workload.pickVertex(click++);
+    }
+
+    @Benchmark
+    public int pickFace() {
+        return workload.pickFace(click++);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int pickFaceCold() {
+        return workload.pickFaceCold();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Проекция вершин и отрисовка кадра 800x600 в изображение (Java2D и буфер глубины)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-Djava.awt.headless=true"})
+public class RenderBenchmark {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int faces;
+
+    private MeshWorkload workload;
+
+    @Setup
+    public void setup() {
+        workload = MeshWorkload.create(faces);
+    }
+
+    @Benchmark
+    public Object project() {
+        return workload.project();
+    }
+
+    @Benchmark
+    public Object paint() {
+        return workload.paint(false);
+    }
+
+    @Benchmark
+    public Object paintDepthBuffer() {
+        return workload.paint(true);
+    }
+}
\ No newline at end of file
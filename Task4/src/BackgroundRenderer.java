@@ -0,0 +1,123 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+// Отрисовка кадров в отдельном потоке, вне потока обработки событий Swing.
+// Кадр рисуется в задний буфер, готовый кадр меняется местами с передним,
+// а панель только копирует передний буфер на экран. Если запросы приходят быстрее,
+// чем поток успевает рисовать, промежуточные кадры пропускаются.
+// Кадр читает массивы модели без копирования, поэтому правки модели идут через edit():
+// текущий кадр прерывается, и пока правка не закончена, новый кадр не начинается
+class BackgroundRenderer {
+    private final SceneRenderer scene = new SceneRenderer(this::isEditing);
+    private final JComponent target;   // Панель, которую нужно перерисовать после готового кадра
+    private final Object lock = new Object();
+    private final Thread thread;
+    // Кадр рисуется только под этой блокировкой; справедливая, чтобы правка не ждала следующих кадров
+    private final ReentrantLock frameLock = new ReentrantLock(true);
+    private volatile boolean editing;  // Правка ждёт блокировку или идёт: текущий кадр прерывается
+
+    private ViewState pending;         // Последний запрошенный кадр (более старые отбрасываются)
+    private ViewState requested;       // Кадр, запрошенный последним (для отсечения повторов)
+    private BufferedImage front;       // Последний готовый кадр
+    private BufferedImage back;        // Буфер, в который идёт отрисовка
+    private boolean running = true;
+
+    public BackgroundRenderer(JComponent target) {
+        this.target = target;
+        thread = new Thread(this::renderLoop, "ModelRenderer-background");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Запрос кадра; повторный запрос того же кадра игнорируется
+    public void request(ViewState view) {
+        synchronized (lock) {
+            if (view.sameFrame(requested)) return;
+            requested = view.snapshot();
+            pending = requested;
+            lock.notifyAll();
+        }
+    }
+
+    // Копирование последнего готового кадра на экран
+    public void drawLatest(Graphics g) {
+        synchronized (lock) {
+            if (front != null) {
+                g.drawImage(front, 0, 0, null);
+            }
+        }
+    }
+
+    // Правка модели в потоке Swing; возвращает результат change
+    public boolean edit(BooleanSupplier change) {
+        editing = true;
+        frameLock.lock();
+        try {
+            return change.getAsBoolean();
+        } finally {
+            editing = false;
+            frameLock.unlock();
+        }
+    }
+
+    private boolean isEditing() {
+        return editing;
+    }
+
+    public void shutdown() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+    }
+
+    private void renderLoop() {
+        while (true) {
+            ViewState view;
+            synchronized (lock) {
+                while (running && pending == null) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running) return;
+                view = pending;
+                pending = null;
+            }
+
+            BufferedImage image = back;
+            if (image == null || image.getWidth() != view.width || image.getHeight() != view.height) {
+                image = new BufferedImage(Math.max(1, view.width), Math.max(1, view.height), BufferedImage.TYPE_INT_RGB);
+            }
+
+            Graphics2D g2d = image.createGraphics();
+            frameLock.lock();
+            try {
+                g2d.setColor(view.background);
+                g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+                scene.render(g2d, view);
+            } catch (CancellationException e) {
+                // Кадр прерван правкой модели: недорисованный кадр не показывается, запрос повторяется после правки
+                synchronized (lock) {
+                    if (pending == null) pending = view;
+                }
+                continue;
+            } finally {
+                frameLock.unlock();
+                g2d.dispose();
+            }
+
+            synchronized (lock) {
+                back = front;
+                front = image;
+            }
+            target.repaint();
+        }
+    }
+}
\ No newline at end of file
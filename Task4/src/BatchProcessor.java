@@ -0,0 +1,200 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Пакетная обработка OBJ файлов без интерфейса: чтение, цепочка операций над сеткой и запись,
+// по файлу на задачу в пуле потоков. Структура каталогов входа повторяется в выходном каталоге.
+// Новые файлы не берутся в работу, пока оценка памяти под уже взятые больше бюджета,
+// поэтому большие файлы не обрабатываются все сразу
+public class BatchProcessor {
+    private static final double MEMORY_PER_FILE_BYTE = 2.0;   // Оценка памяти под модель на байт OBJ
+    private static final int QUEUED_PER_THREAD = 2;           // Задач в очереди на поток
+
+    // Операция над моделью; может вернуть новую модель
+    private interface Stage {
+        Model3D apply(Model3D model);
+    }
+
+    private final List<Stage> stages = new ArrayList<>();
+    private final List<String> stageNames = new ArrayList<>();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long memoryBudget = Runtime.getRuntime().maxMemory() / 4 * 3;
+
+    // Итоги (задачи обновляют их из разных потоков)
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong verticesIn = new AtomicLong();
+    private final AtomicLong verticesOut = new AtomicLong();
+    private final AtomicLong facesIn = new AtomicLong();
+    private final AtomicLong facesOut = new AtomicLong();
+
+    public static void main(String[] args) {
+        BatchProcessor processor = new BatchProcessor();
+        List<String> paths = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--threads":
+                        processor.threads = Math.max(1, Integer.parseInt(args[++i]));
+                        break;
+                    case "--memory":
+                        processor.memoryBudget = Long.parseLong(args[++i]) << 20;
+                        break;
+                    case "--stage":
+                        processor.addStage(args[++i]);
+                        break;
+                    default:
+                        if (args[i].startsWith("--")) throw new IllegalArgumentException("Unknown option " + args[i]);
+                        paths.add(args[i]);
+                }
+            }
+            if (paths.size() != 2) throw new IllegalArgumentException("Expected input and output paths");
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(2);
+            return;
+        }
+
+        try {
+            boolean success = processor.run(new File(paths.get(0)).toPath(), new File(paths.get(1)).toPath());
+            System.exit(success ? 0 : 1);
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Batch failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java BatchProcessor [options] <input file or directory> <output directory>");
+        System.err.println("  --threads N             worker threads (default: number of cores)");
+        System.err.println("  --memory MB             memory budget for models in flight (default: 3/4 of the heap)");
+        System.err.println("  --stage weld[=EPSILON]  merge vertices closer than EPSILON, drop duplicate faces (default 1e-6)");
+        System.err.println("  --stage clean           drop degenerate faces and unused vertices");
+        System.err.println("  --stage simplify=N      reduce to at most N triangles");
+        System.err.println("Stages run in the order given.");
+    }
+
+    private void addStage(String spec) {
+        int equals = spec.indexOf('=');
+        String name = equals < 0 ? spec : spec.substring(0, equals);
+        String argument = equals < 0 ? null : spec.substring(equals + 1);
+        switch (name) {
+            case "weld":
+                float epsilon = argument != null ? Float.parseFloat(argument) : 1e-6f;
+                stages.add(model -> {
+                    VertexWelder.weld(model, epsilon);
+                    return model;
+                });
+                break;
+            case "clean":
+                stages.add(model -> {
+                    MeshEditor.deleteDegenerateFaces(model);
+                    MeshEditor.deleteUnusedVertices(model);
+                    return model;
+                });
+                break;
+            case "simplify":
+                if (argument == null) throw new IllegalArgumentException("simplify needs a triangle count");
+                int triangles = Integer.parseInt(argument);
+                stages.add(model -> {
+                    Model3D simplified = LodBuilder.simplify(model, triangles);
+                    if (simplified == null) throw new IllegalStateException("Simplification interrupted");
+                    return simplified;
+                });
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown stage " + name);
+        }
+        stageNames.add(spec);
+    }
+
+    // Обработка всех OBJ файлов; false, если хотя бы один файл не удалось обработать
+    public boolean run(Path input, Path output) throws IOException, InterruptedException {
+        int budgetMb = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget >> 20));
+        Semaphore memory = new Semaphore(budgetMb);
+        Semaphore queue = new Semaphore(threads * QUEUED_PER_THREAD);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "BatchProcessor-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        System.out.println("Stages: " + (stageNames.isEmpty() ? "none" : String.join(", ", stageNames))
+                + "; threads: " + threads + "; memory budget: " + budgetMb + " MB");
+        long start = System.nanoTime();
+        boolean single = Files.isRegularFile(input);
+        try (Stream<Path> files = single ? Stream.of(input) : Files.walk(input)) {
+            Iterator<Path> iterator = files.filter(BatchProcessor::isObj).iterator();
+            while (iterator.hasNext()) {
+                Path source = iterator.next();
+                Path target = output.resolve(single ? input.getFileName() : input.relativize(source));
+                // Файл больше всего бюджета обрабатывается, когда заняты все разрешения, то есть в одиночку
+                int permits = (int) Math.min(budgetMb, Math.max(1, (long) (Files.size(source) * MEMORY_PER_FILE_BYTE) >> 20));
+                queue.acquire();
+                memory.acquire(permits);
+                pool.execute(() -> {
+                    try {
+                        process(source, target);
+                    } finally {
+                        memory.release(permits);
+                        queue.release();
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        printSummary((System.nanoTime() - start) / 1e9);
+        return failed.get() == 0;
+    }
+
+    private static boolean isObj(Path path) {
+        return Files.isRegularFile(path) && path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".obj");
+    }
+
+    private void process(Path source, Path target) {
+        try {
+            // Файлы и так обрабатываются параллельно, поэтому каждый читается в одном потоке
+            Model3D model = ObjReader.read(source.toFile(), threads == 1);
+            bytesRead.addAndGet(Files.size(source));
+            verticesIn.addAndGet(model.getVertexCount());
+            facesIn.addAndGet(model.getFaceCount());
+
+            for (Stage stage : stages) model = stage.apply(model);
+
+            if (target.getParent() != null) Files.createDirectories(target.getParent());
+            ObjWriter.write(model, target.toFile());
+            bytesWritten.addAndGet(Files.size(target));
+            verticesOut.addAndGet(model.getVertexCount());
+            facesOut.addAndGet(model.getFaceCount());
+            processed.incrementAndGet();
+        } catch (IOException | RuntimeException | OutOfMemoryError e) {
+            failed.incrementAndGet();
+            System.err.println(source + ": " + e);
+        }
+    }
+
+    private void printSummary(double seconds) {
+        long files = processed.get();
+        System.out.printf(Locale.ROOT, "Processed %d files (%d failed) in %.2f s: %.1f files/s, %.1f MB/s read, %.1f MB/s written%n",
+                files, failed.get(), seconds, files / seconds,
+                bytesRead.get() / 1048576.0 / seconds, bytesWritten.get() / 1048576.0 / seconds);
+        System.out.printf(Locale.ROOT, "Vertices %d -> %d, faces %d -> %d%n",
+                verticesIn.get(), verticesOut.get(), facesIn.get(), facesOut.get());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,174 @@
+import java.util.Arrays;
+
+// Иерархия ограничивающих объёмов (BVH) по произвольным примитивам, заданным своими AABB.
+// Строится один раз в координатах модели, поэтому повороты вида её не портят.
+// Узлы хранятся в плоских массивах: границы (6 чисел на узел), первый ребёнок или первый примитив, число примитивов
+class Bvh {
+    private static final int LEAF_SIZE = 4;
+
+    private final int[] order;          // Индексы примитивов, упорядоченные по листьям
+    private float[] nodeBounds;         // minX, minY, minZ, maxX, maxY, maxZ
+    private int[] nodeFirst;            // Лист: первый элемент в order; узел: индекс левого ребёнка (правый — следующий)
+    private int[] nodeCount;            // Лист: число примитивов; внутренний узел: 0
+    private int nodes;
+
+    // Обработчик листа: получает примитив и возвращает новую дальнюю границу луча
+    interface LeafVisitor {
+        double visit(int primitive, double tMax);
+    }
+
+    // bounds: 6 чисел на примитив (min и max по осям)
+    public Bvh(float[] bounds, int count) {
+        order = new int[count];
+        for (int i = 0; i < count; i++) order[i] = i;
+
+        int capacity = Math.max(1, 2 * ((count + LEAF_SIZE - 1) / LEAF_SIZE));
+        nodeBounds = new float[capacity * 6];
+        nodeFirst = new int[capacity];
+        nodeCount = new int[capacity];
+
+        float[] centroids = new float[count * 3];
+        for (int i = 0; i < count; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                centroids[i * 3 + axis] = (bounds[i * 6 + axis] + bounds[i * 6 + 3 + axis]) * 0.5f;
+            }
+        }
+        nodes = 1;
+        build(0, 0, count, bounds, centroids);
+    }
+
+    private void build(int node, int from, int to, float[] bounds, float[] centroids) {
+        ensureNodes(node + 1);
+        float[] box = new float[] {
+                Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE,
+                -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE
+        };
+        for (int i = from; i < to; i++) {
+            int p = order[i] * 6;
+            for (int axis = 0; axis < 3; axis++) {
+                box[axis] = Math.min(box[axis], bounds[p + axis]);
+                box[3 + axis] = Math.max(box[3 + axis], bounds[p + 3 + axis]);
+            }
+        }
+        System.arraycopy(box, 0, nodeBounds, node * 6, 6);
+
+        if (to - from <= LEAF_SIZE) {
+            nodeFirst[node] = from;
+            nodeCount[node] = to - from;
+            return;
+        }
+
+        // Деление по медиане центров вдоль самой длинной оси
+        int axis = 0;
+        float extent = box[3] - box[0];
+        for (int a = 1; a < 3; a++) {
+            if (box[3 + a] - box[a] > extent) {
+                extent = box[3 + a] - box[a];
+                axis = a;
+            }
+        }
+        int middle = (from + to) >>> 1;
+        select(from, to - 1, middle, axis, centroids);
+
+        int left = nodes;
+        nodes += 2;
+        nodeFirst[node] = left;
+        nodeCount[node] = 0;
+        build(left, from, middle, bounds, centroids);
+        build(left + 1, middle, to, bounds, centroids);
+    }
+
+    // Частичная сортировка (quickselect): order[k] встаёт на своё место по координате axis
+    private void select(int lo, int hi, int k, int axis, float[] centroids) {
+        while (hi > lo) {
+            float pivot = centroids[order[(lo + hi) >>> 1] * 3 + axis];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (centroids[order[i] * 3 + axis] < pivot) i++;
+                while (centroids[order[j] * 3 + axis] > pivot) j--;
+                if (i <= j) {
+                    int t = order[i];
+                    order[i++] = order[j];
+                    order[j--] = t;
+                }
+            }
+            if (k <= j) hi = j;
+            else if (k >= i) lo = i;
+            else return;
+        }
+    }
+
+    private void ensureNodes(int required) {
+        if (required > nodeFirst.length) {
+            int capacity = Math.max(required, nodeFirst.length * 2);
+            nodeBounds = Arrays.copyOf(nodeBounds, capacity * 6);
+            nodeFirst = Arrays.copyOf(nodeFirst, capacity);
+            nodeCount = Arrays.copyOf(nodeCount, capacity);
+        }
+    }
+
+    // Обход узлов, пересекаемых лучом origin + t * direction при t в (0, tMax).
+    // margin расширяет каждый узел (для поиска точек рядом с лучом).
+    // Ближние узлы посещаются первыми, visitor может сократить tMax
+    public void traverse(double[] origin, double[] direction, double tMax, double margin, LeafVisitor visitor) {
+        if (order.length == 0) return;
+        double[] inverse = {1.0 / direction[0], 1.0 / direction[1], 1.0 / direction[2]};
+        int[] stack = new int[64];
+        double[] stackEntry = new double[64];
+        int top = 0;
+
+        double entry = intersect(0, origin, inverse, tMax, margin);
+        if (entry < 0) return;
+        stack[top] = 0;
+        stackEntry[top++] = entry;
+
+        while (top > 0) {
+            int node = stack[--top];
+            if (stackEntry[top] > tMax) continue;
+
+            if (nodeCount[node] > 0) {
+                for (int i = nodeFirst[node]; i < nodeFirst[node] + nodeCount[node]; i++) {
+                    tMax = visitor.visit(order[i], tMax);
+                }
+                continue;
+            }
+
+            int left = nodeFirst[node], right = left + 1;
+            double leftEntry = intersect(left, origin, inverse, tMax, margin);
+            double rightEntry = intersect(right, origin, inverse, tMax, margin);
+            if (top + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                stackEntry = Arrays.copyOf(stackEntry, stackEntry.length * 2);
+            }
+            // Дальний ребёнок кладётся в стек первым, чтобы ближний обрабатывался раньше
+            if (leftEntry >= 0 && rightEntry >= 0) {
+                boolean leftFirst = leftEntry <= rightEntry;
+                stack[top] = leftFirst ? right : left;
+                stackEntry[top++] = leftFirst ? rightEntry : leftEntry;
+                stack[top] = leftFirst ? left : right;
+                stackEntry[top++] = leftFirst ? leftEntry : rightEntry;
+            } else if (leftEntry >= 0) {
+                stack[top] = left;
+                stackEntry[top++] = leftEntry;
+            } else if (rightEntry >= 0) {
+                stack[top] = right;
+                stackEntry[top++] = rightEntry;
+            }
+        }
+    }
+
+    // Пересечение луча с расширенным AABB узла (метод плит); параметр входа или -1
+    private double intersect(int node, double[] origin, double[] inverse, double tMax, double margin) {
+        double tNear = 0, tFar = tMax;
+        int base = node * 6;
+        for (int axis = 0; axis < 3; axis++) {
+            double t1 = (nodeBounds[base + axis] - margin - origin[axis]) * inverse[axis];
+            double t2 = (nodeBounds[base + 3 + axis] + margin - origin[axis]) * inverse[axis];
+            if (Double.isNaN(t1) || Double.isNaN(t2)) continue;  // Луч лежит в плоскости грани плиты
+            tNear = Math.max(tNear, Math.min(t1, t2));
+            tFar = Math.min(tFar, Math.max(t1, t2));
+            if (tNear > tFar) return -1;
+        }
+        return tNear;
+    }
+}
\ No newline at end of file
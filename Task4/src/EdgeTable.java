@@ -0,0 +1,230 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Таблица рёбер модели без повторов: каждая пара вершин хранится один раз, сколько бы полигонов её ни делили.
+// Ключ ребра — пара номеров вершин в одном long, поиск по открытой адресации без упаковки в объекты.
+// Для каждого угла полигона хранится номер ребра к следующему углу, поэтому каркас рисуется по рёбрам,
+// а число полигонов у ребра сразу даёт границы (1) и неманифолдные рёбра (больше 2).
+// Таблица нужна только пакетной отрисовке и строится, пока она включена: при загрузке (prepare)
+// и после правок (prepareAsync). Память таблицы учитывается в бюджете моделей (bytes)
+class EdgeTable {
+    private static final long EMPTY = -1L;
+    // Таблицы по моделям; пересчитываются, когда меняется версия модели
+    private static final Map<Model3D, EdgeTable> cache = new WeakHashMap<>();
+
+    private static final ExecutorService BUILDER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "EdgeTable-builder");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private final int version;
+    private int[] edgeA;            // Меньший номер вершины ребра
+    private int[] edgeB;            // Больший номер вершины ребра
+    private int[] faceUses;         // Сколько сторон полигонов проходит по ребру
+    private int edgeCount;
+    private final int[] cornerEdges;    // Ребро от угла к следующему углу того же полигона (-1 для вырожденного)
+
+    private long[] keys;            // Открытая адресация: ключ пары или EMPTY
+    private int[] values;           // Номер ребра для ключа
+    private int mask;
+
+    // Таблица для текущей версии модели; если её ещё нет, строится в вызывающем потоке
+    public static EdgeTable of(Model3D model) {
+        EdgeTable table = peek(model);
+        if (table == null) {
+            table = new EdgeTable(model.getVersion(), model.getFaceOffsets(), model.getFaceIndices(), model.getFaceCount());
+            put(model, table);
+        }
+        return table;
+    }
+
+    // Готовая таблица для текущей версии модели или null, без построения
+    public static EdgeTable peek(Model3D model) {
+        synchronized (cache) {
+            EdgeTable table = cache.get(model);
+            return table != null && table.version == model.getVersion() ? table : null;
+        }
+    }
+
+    // Построение в текущем потоке, пока модель ещё никому не видна (поток загрузки)
+    public static void prepare(Model3D model) {
+        of(model);
+    }
+
+    // Построение после правки в фоновом потоке по копии полигонов: следующая правка не мешает построению.
+    // onReady вызывается из фонового потока, когда таблица готова
+    public static void prepareAsync(Model3D model, Runnable onReady) {
+        if (peek(model) != null) return;
+        int version = model.getVersion();
+        int faceCount = model.getFaceCount();
+        int[] offsets = Arrays.copyOf(model.getFaceOffsets(), faceCount + 1);
+        int[] indices = Arrays.copyOf(model.getFaceIndices(), model.getIndexCount());
+        BUILDER.execute(() -> {
+            // Модель успели изменить ещё раз: эту версию уже никто не нарисует
+            if (model.getVersion() != version) return;
+            put(model, new EdgeTable(version, offsets, indices, faceCount));
+            onReady.run();
+        });
+    }
+
+    // Память под таблицу модели (любой версии, пока она в кэше); 0, если таблицы нет
+    public static long bytes(Model3D model) {
+        synchronized (cache) {
+            EdgeTable table = cache.get(model);
+            return table != null ? table.bytes() : 0;
+        }
+    }
+
+    // Сброс всех таблиц, когда пакетная отрисовка выключена
+    public static void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private static void put(Model3D model, EdgeTable table) {
+        synchronized (cache) {
+            EdgeTable current = cache.get(model);
+            if (current == null || current.version != model.getVersion()) cache.put(model, table);
+        }
+    }
+
+    private EdgeTable(int version, int[] offsets, int[] indices, int faceCount) {
+        this.version = version;
+        int indexCount = offsets[faceCount];
+        cornerEdges = new int[indexCount];
+
+        // Рёбер в замкнутой сетке примерно вдвое меньше, чем углов: таблица заполнена примерно наполовину
+        allocate(Integer.highestOneBit(Math.max(16, indexCount) * 2 - 1));
+        int expected = Math.max(16, indexCount / 2 + 1);
+        edgeA = new int[expected];
+        edgeB = new int[expected];
+        faceUses = new int[expected];
+
+        for (int f = 0; f < faceCount; f++) {
+            int start = offsets[f];
+            int size = offsets[f + 1] - start;
+            for (int j = 0; j < size; j++) {
+                int a = indices[start + j];
+                int b = indices[start + (j + 1 == size ? 0 : j + 1)];
+                cornerEdges[start + j] = a == b ? -1 : insert(Math.min(a, b), Math.max(a, b));
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static long key(int a, int b) {
+        return (long) a << 32 | (b & 0xFFFFFFFFL);
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ hash >>> 32) & mask;
+    }
+
+    // Номер ребра a-b (a < b); новое ребро добавляется в конец
+    private int insert(int a, int b) {
+        long key = key(a, b);
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                faceUses[values[slot]]++;
+                return values[slot];
+            }
+            slot = slot + 1 & mask;
+        }
+
+        // Незамкнутые сетки дают больше рёбер: таблица растёт при заполнении на три четверти
+        if (edgeCount + 1 > keys.length / 4 * 3) {
+            rehash();
+            slot = slot(key);
+            while (keys[slot] != EMPTY) slot = slot + 1 & mask;
+        }
+        if (edgeCount == edgeA.length) {
+            int capacity = edgeCount + (edgeCount >> 1);
+            edgeA = Arrays.copyOf(edgeA, capacity);
+            edgeB = Arrays.copyOf(edgeB, capacity);
+            faceUses = Arrays.copyOf(faceUses, capacity);
+        }
+        keys[slot] = key;
+        values[slot] = edgeCount;
+        edgeA[edgeCount] = a;
+        edgeB[edgeCount] = b;
+        faceUses[edgeCount] = 1;
+        return edgeCount++;
+    }
+
+    private void rehash() {
+        allocate(keys.length * 2);
+        for (int e = 0; e < edgeCount; e++) {
+            long key = key(edgeA[e], edgeB[e]);
+            int slot = slot(key);
+            while (keys[slot] != EMPTY) slot = slot + 1 & mask;
+            keys[slot] = key;
+            values[slot] = e;
+        }
+    }
+
+    private long bytes() {
+        return 8L * keys.length + 4L * (values.length + cornerEdges.length + 3L * edgeA.length);
+    }
+
+    public int getEdgeCount() { return edgeCount; }
+    public int getVertexA(int edge) { return edgeA[edge]; }
+    public int getVertexB(int edge) { return edgeB[edge]; }
+    public int getFaceUses(int edge) { return faceUses[edge]; }
+
+    // Ребро от угла в позиции position массива индексов к следующему углу полигона
+    public int getCornerEdge(int position) { return cornerEdges[position]; }
+
+    // Номер ребра между двумя вершинами или -1
+    public int find(int a, int b) {
+        long key = key(Math.min(a, b), Math.max(a, b));
+        for (int slot = slot(key); keys[slot] != EMPTY; slot = slot + 1 & mask) {
+            if (keys[slot] == key) return values[slot];
+        }
+        return -1;
+    }
+
+    // Ребро только одного полигона: край незамкнутой поверхности
+    public boolean isBoundary(int edge) {
+        return faceUses[edge] == 1;
+    }
+
+    // Ребро больше чем двух полигонов
+    public boolean isNonManifold(int edge) {
+        return faceUses[edge] > 2;
+    }
+
+    public int[] getBoundaryEdges() {
+        return edgesWithUses(1, 1);
+    }
+
+    public int[] getNonManifoldEdges() {
+        return edgesWithUses(3, Integer.MAX_VALUE);
+    }
+
+    private int[] edgesWithUses(int min, int max) {
+        int count = 0;
+        for (int e = 0; e < edgeCount; e++) {
+            if (faceUses[e] >= min && faceUses[e] <= max) count++;
+        }
+        int[] result = new int[count];
+        count = 0;
+        for (int e = 0; e < edgeCount; e++) {
+            if (faceUses[e] >= min && faceUses[e] <= max) result[count++] = e;
+        }
+        return result;
+    }
+}
\ No newline at end of file
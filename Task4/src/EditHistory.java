@@ -0,0 +1,300 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+
+// История правок модели для отмены и повтора.
+// Вместо копий модели хранятся только удалённые данные: номера и координаты удалённых вершин,
+// номера и индексы удалённых полигонов. Отмена вставляет их обратно одним проходом по массивам с конца,
+// повтор выполняет то же удаление заново. Старые записи вытесняются, когда история превышает бюджет памяти
+class EditHistory {
+    private final long budget;               // Предел памяти под записи, байт
+    private final Deque<Edit> undoStack = new ArrayDeque<>();
+    private final Deque<Edit> redoStack = new ArrayDeque<>();
+    private long used;
+    private int expectedVersion = -1;        // Версия модели после последней операции истории
+    private List<Edit> group;                // Правки открытой группы (null, если группа не начата)
+
+    // Одна правка и данные для её отмены
+    private interface Edit {
+        void undo(Model3D model);
+        void redo(Model3D model);
+        long bytes();
+    }
+
+    public EditHistory(long budget) {
+        this.budget = budget;
+    }
+
+    // Удаление вершин (и полигонов, которые на них опираются) с записью в историю
+    public void deleteVertices(Model3D model, BitSet vertices) {
+        check(model);
+        BitSet removed = vertices.get(0, model.getVertexCount());
+        FaceDeletion faces = FaceDeletion.capture(model, MeshEditor.facesLostWith(model, vertices));
+        VertexDeletion edit = new VertexDeletion(removed.stream().toArray(), faces);
+        edit.saveCoords(model);
+        MeshEditor.deleteVertices(model, vertices);
+        record(model, edit);
+    }
+
+    // Удаление полигонов с записью в историю
+    public void deletePolygons(Model3D model, BitSet polygons) {
+        check(model);
+        FaceDeletion edit = FaceDeletion.capture(model, polygons.get(0, model.getFaceCount()));
+        MeshEditor.deletePolygons(model, polygons);
+        record(model, edit);
+    }
+
+    // Правки между beginGroup и endGroup записываются одной: одно действие пользователя отменяется целиком
+    public void beginGroup() {
+        group = new ArrayList<>();
+    }
+
+    public void endGroup() {
+        List<Edit> edits = group;
+        group = null;
+        if (edits == null || edits.isEmpty()) return;
+        push(edits.size() == 1 ? edits.get(0) : new Group(edits.toArray(new Edit[0])));
+    }
+
+    public boolean canUndo() { return !undoStack.isEmpty(); }
+    public boolean canRedo() { return !redoStack.isEmpty(); }
+
+    // Отмена последней правки; false, если отменять нечего
+    public boolean undo(Model3D model) {
+        check(model);
+        Edit edit = undoStack.pollFirst();
+        if (edit == null) return false;
+        edit.undo(model);
+        redoStack.addFirst(edit);
+        expectedVersion = model.getVersion();
+        return true;
+    }
+
+    // Повтор отменённой правки; false, если повторять нечего
+    public boolean redo(Model3D model) {
+        check(model);
+        Edit edit = redoStack.pollFirst();
+        if (edit == null) return false;
+        edit.redo(model);
+        undoStack.addFirst(edit);
+        expectedVersion = model.getVersion();
+        return true;
+    }
+
+    public void clear() {
+        undoStack.clear();
+        redoStack.clear();
+        used = 0;
+    }
+
+    // Модель изменили в обход истории — записанные номера больше не соответствуют её содержимому
+    private void check(Model3D model) {
+        if (expectedVersion != -1 && expectedVersion != model.getVersion()) {
+            clear();
+        }
+        expectedVersion = model.getVersion();
+    }
+
+    private void record(Model3D model, Edit edit) {
+        expectedVersion = model.getVersion();
+        if (group != null) {
+            group.add(edit);
+        } else {
+            push(edit);
+        }
+    }
+
+    private void push(Edit edit) {
+        used -= bytes(redoStack);
+        redoStack.clear();
+        undoStack.addFirst(edit);
+        used += edit.bytes();
+        // Вытеснение самых старых правок; правка больше всего бюджета тоже не сохраняется
+        while (used > budget && !undoStack.isEmpty()) {
+            used -= undoStack.pollLast().bytes();
+        }
+    }
+
+    private static long bytes(Deque<Edit> edits) {
+        long total = 0;
+        for (Edit edit : edits) total += edit.bytes();
+        return total;
+    }
+
+    // Несколько правок одного действия: отмена идёт в обратном порядке, повтор — в прямом
+    private static class Group implements Edit {
+        private final Edit[] edits;
+
+        Group(Edit[] edits) {
+            this.edits = edits;
+        }
+
+        @Override
+        public void undo(Model3D model) {
+            for (int i = edits.length - 1; i >= 0; i--) edits[i].undo(model);
+        }
+
+        @Override
+        public void redo(Model3D model) {
+            for (Edit edit : edits) edit.redo(model);
+        }
+
+        @Override
+        public long bytes() {
+            long total = 0;
+            for (Edit edit : edits) total += edit.bytes();
+            return total;
+        }
+    }
+
+    // Удалённые полигоны: их прежние номера, размеры и индексы вершин
+    private static class FaceDeletion implements Edit {
+        private final int[] faces;       // Номера по возрастанию
+        private final int[] sizes;
+        private final int[] indices;
+
+        private FaceDeletion(int[] faces, int[] sizes, int[] indices) {
+            this.faces = faces;
+            this.sizes = sizes;
+            this.indices = indices;
+        }
+
+        static FaceDeletion capture(Model3D model, BitSet removed) {
+            int[] faces = removed.stream().toArray();
+            int[] sizes = new int[faces.length];
+            int total = 0;
+            for (int i = 0; i < faces.length; i++) {
+                sizes[i] = model.getFaceSize(faces[i]);
+                total += sizes[i];
+            }
+            int[] indices = new int[total];
+            int position = 0;
+            for (int face : faces) {
+                System.arraycopy(model.getFaceIndices(), model.getFaceStart(face), indices, position, model.getFaceSize(face));
+                position += model.getFaceSize(face);
+            }
+            return new FaceDeletion(faces, sizes, indices);
+        }
+
+        @Override
+        public void undo(Model3D model) {
+            restore(model, null, model.currentFaceNormals());
+        }
+
+        // Вставка удалённых полигонов на прежние места; индексы оставшихся полигонов переводятся через newToOld.
+        // Нормали оставшихся полигонов (если normals не null) сдвигаются вместе с ними, считаются только вставленные
+        void restore(Model3D model, int[] newToOld, float[] normals) {
+            int keptFaces = model.getFaceCount();
+            int faceCount = keptFaces + faces.length;
+            int indexCount = model.getIndexCount() + indices.length;
+            int[] offsets = model.getFaceOffsets();
+            int[] faceIndices = model.getFaceIndices();
+            if (offsets.length < faceCount + 1) offsets = Arrays.copyOf(offsets, faceCount + 1);
+            if (faceIndices.length < indexCount) faceIndices = Arrays.copyOf(faceIndices, indexCount);
+            if (normals != null && normals.length < faceCount * 3) normals = Arrays.copyOf(normals, faceCount * 3);
+
+            // С конца: каждый полигон сдвигается только вправо, поэтому ещё не перенесённые данные не затираются
+            int kept = keptFaces - 1;
+            int removed = faces.length - 1;
+            int removedEnd = indices.length;
+            int end = indexCount;
+            offsets[faceCount] = indexCount;
+            for (int f = faceCount - 1; f >= 0; f--) {
+                // Дальше полигоны стоят на своих местах, и перенумеровывать их не нужно
+                if (removed < 0 && newToOld == null) break;
+                int start;
+                if (removed >= 0 && faces[removed] == f) {
+                    start = end - sizes[removed];
+                    removedEnd -= sizes[removed];
+                    System.arraycopy(indices, removedEnd, faceIndices, start, sizes[removed]);
+                    removed--;
+                } else {
+                    int from = offsets[kept], size = offsets[kept + 1] - from;
+                    start = end - size;
+                    System.arraycopy(faceIndices, from, faceIndices, start, size);
+                    if (newToOld != null) {
+                        for (int i = start; i < end; i++) faceIndices[i] = newToOld[faceIndices[i]];
+                    }
+                    if (normals != null && kept != f) System.arraycopy(normals, kept * 3, normals, f * 3, 3);
+                    kept--;
+                }
+                offsets[f] = start;
+                end = start;
+            }
+            model.setMesh(model.getCoords(), model.getVertexCount(), offsets, faceIndices, faceCount);
+            if (normals != null) model.setFaceNormals(normals, faces);
+        }
+
+        @Override
+        public void redo(Model3D model) {
+            BitSet removed = new BitSet();
+            for (int face : faces) removed.set(face);
+            MeshEditor.deletePolygons(model, removed);
+        }
+
+        @Override
+        public long bytes() {
+            return 4L * (faces.length + sizes.length + indices.length);
+        }
+    }
+
+    // Удалённые вершины: прежние номера и координаты, плюс полигоны, пропавшие вместе с ними
+    private static class VertexDeletion implements Edit {
+        private final int[] vertices;    // Номера по возрастанию
+        private final float[] coords;
+        private final FaceDeletion faces;
+
+        VertexDeletion(int[] vertices, FaceDeletion faces) {
+            this.vertices = vertices;
+            this.coords = new float[vertices.length * 3];
+            this.faces = faces;
+        }
+
+        void saveCoords(Model3D model) {
+            for (int i = 0; i < vertices.length; i++) {
+                System.arraycopy(model.getCoords(), vertices[i] * 3, coords, i * 3, 3);
+            }
+        }
+
+        @Override
+        public void undo(Model3D model) {
+            // Нормали берутся до вставки вершин: сами полигоны не меняют формы, только номера вершин
+            float[] normals = model.currentFaceNormals();
+            int keptVertices = model.getVertexCount();
+            int vertexCount = keptVertices + vertices.length;
+            float[] modelCoords = model.getCoords();
+            if (modelCoords.length < vertexCount * 3) modelCoords = Arrays.copyOf(modelCoords, vertexCount * 3);
+
+            // Раздвигание координат с конца и таблица новый номер -> прежний для индексов полигонов
+            int[] newToOld = new int[keptVertices];
+            int kept = keptVertices - 1;
+            int removed = vertices.length - 1;
+            for (int v = vertexCount - 1; v >= 0; v--) {
+                if (removed >= 0 && vertices[removed] == v) {
+                    System.arraycopy(coords, removed * 3, modelCoords, v * 3, 3);
+                    removed--;
+                } else {
+                    if (kept != v) System.arraycopy(modelCoords, kept * 3, modelCoords, v * 3, 3);
+                    newToOld[kept--] = v;
+                }
+            }
+            model.setMesh(modelCoords, vertexCount, model.getFaceOffsets(), model.getFaceIndices(), model.getFaceCount());
+            faces.restore(model, newToOld, normals);
+        }
+
+        @Override
+        public void redo(Model3D model) {
+            BitSet removed = new BitSet();
+            for (int vertex : vertices) removed.set(vertex);
+            MeshEditor.deleteVertices(model, removed);
+        }
+
+        @Override
+        public long bytes() {
+            return 4L * vertices.length + 4L * coords.length + faces.bytes();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+// Отсечение полигонов по уже спроецированным вершинам перед отрисовкой:
+// вырожденные полигоны, точки у плоскости камеры и за ней (всегда),
+// полигоны вне области панели и полигоны, повёрнутые от камеры (по выбору).
+// Результат — список видимых полигонов и счётчики отброшенных
+class FaceCuller {
+    // Точки ближе этого расстояния к камере дают бессмысленные экранные координаты
+    private static final double NEAR_PLANE = 0.01;
+    private static final int SCREEN_MARGIN = 2;   // Запас на толщину контура
+
+    private int[] visible = new int[0];
+    private int visibleCount;
+    private boolean[] vertexVisible = new boolean[0];
+    private int visibleVertexCount;
+
+    // Счётчики последнего кадра
+    private int culledBackFaces;
+    private int culledFrustum;
+    private int culledNear;
+    private int culledDegenerate;
+
+    public void cull(Model3D model, Projection projection, int width, int height,
+                     boolean backFaces, boolean frustum) {
+        int vertices = model.getVertexCount();
+        int faces = model.getFaceCount();
+        if (visible.length < faces) visible = new int[faces];
+        if (vertexVisible.length < vertices) vertexVisible = new boolean[vertices];
+        visibleCount = 0;
+        culledBackFaces = culledFrustum = culledNear = culledDegenerate = 0;
+
+        float[] screenX = projection.getScreenX();
+        float[] screenY = projection.getScreenY();
+        float[] depth = projection.getDepth();
+        float halfWidth = width / 2f + SCREEN_MARGIN, halfHeight = height / 2f + SCREEN_MARGIN;
+
+        // Вершины: перед плоскостью камеры и (при отсечении по экрану) внутри панели
+        visibleVertexCount = 0;
+        for (int i = 0; i < vertices; i++) {
+            boolean inFront = Projection.DEPTH + depth[i] > NEAR_PLANE;
+            vertexVisible[i] = inFront && (!frustum
+                    || Math.abs(screenX[i]) <= halfWidth && Math.abs(screenY[i]) <= halfHeight);
+            if (vertexVisible[i]) visibleVertexCount++;
+        }
+
+        for (int f = 0; f < faces; f++) {
+            int start = model.getFaceStart(f);
+            int size = model.getFaceSize(f);
+            if (size < 3) {
+                culledDegenerate++;
+                continue;
+            }
+
+            boolean valid = true, near = false;
+            float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+            float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+            double area = 0;
+            int last = model.getIndex(start + size - 1);
+            if (last < 0 || last >= vertices) valid = false;
+            for (int j = 0; j < size && valid; j++) {
+                int v = model.getIndex(start + j);
+                if (v < 0 || v >= vertices) {
+                    valid = false;
+                    break;
+                }
+                if (Projection.DEPTH + depth[v] <= NEAR_PLANE) near = true;
+                minX = Math.min(minX, screenX[v]);
+                maxX = Math.max(maxX, screenX[v]);
+                minY = Math.min(minY, screenY[v]);
+                maxY = Math.max(maxY, screenY[v]);
+                // Удвоенная ориентированная площадь на экране (формула шнурков)
+                area += (double) screenX[last] * screenY[v] - (double) screenX[v] * screenY[last];
+                last = v;
+            }
+
+            if (!valid) {
+                culledDegenerate++;
+            } else if (near) {
+                culledNear++;
+            } else if (frustum && (maxX < -halfWidth || minX > halfWidth || maxY < -halfHeight || minY > halfHeight)) {
+                culledFrustum++;
+            } else if (backFaces && area >= 0) {
+                // Ось Y экрана направлена вниз, поэтому лицевые (против часовой стрелки) грани
+                // имеют отрицательную площадь; нулевая площадь — грань видна ребром
+                culledBackFaces++;
+            } else {
+                visible[visibleCount++] = f;
+            }
+        }
+    }
+
+    public int[] getVisibleFaces() { return visible; }
+    public int getVisibleCount() { return visibleCount; }
+    public boolean isVertexVisible(int vertex) { return vertexVisible[vertex]; }
+    public int getVisibleVertexCount() { return visibleVertexCount; }
+
+    public int getCulledBackFaces() { return culledBackFaces; }
+    public int getCulledFrustum() { return culledFrustum; }
+    public int getCulledNear() { return culledNear; }
+    public int getCulledDegenerate() { return culledDegenerate; }
+    public int getCulledTotal() { return culledBackFaces + culledFrustum + culledNear + culledDegenerate; }
+}
\ No newline at end of file
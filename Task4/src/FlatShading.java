@@ -0,0 +1,40 @@
+// Плоское затенение по Ламберту: яркость полигона — косинус угла между его нормалью и направлением на свет.
+// Свет закреплён за камерой (чуть слева сверху) и поворачивается вместе с видом, поэтому направление на него
+// переводится в координаты модели один раз на кадр, а на полигон остаётся одно скалярное произведение.
+// Освещение двустороннее: у файлов OBJ обход полигонов часто не согласован
+class FlatShading {
+    static final int LEVELS = 64;                 // Ступеней яркости (цвета берутся из готовых палитр)
+    private static final double AMBIENT = 0.25;   // Яркость полигона, повёрнутого к свету ребром
+    // Направление на свет в координатах вида: влево, вверх (ось Y экрана направлена вниз) и к камере
+    private static final double LIGHT_X = -0.35, LIGHT_Y = -0.45, LIGHT_Z = -1.0;
+
+    private final double[] light = new double[3];
+    private float[] normals = new float[0];
+
+    // Нормали модели и направление на свет для поворота кадра
+    public void update(Model3D model, Projection projection) {
+        normals = model.getFaceNormals();
+        double length = Math.sqrt(LIGHT_X * LIGHT_X + LIGHT_Y * LIGHT_Y + LIGHT_Z * LIGHT_Z);
+        projection.toModel(LIGHT_X / length, LIGHT_Y / length, LIGHT_Z / length, light);
+    }
+
+    // Ступень яркости полигона от 0 (только фоновый свет) до LEVELS - 1
+    public int level(int face) {
+        int base = face * 3;
+        double cosine = Math.abs(normals[base] * light[0] + normals[base + 1] * light[1] + normals[base + 2] * light[2]);
+        return (int) Math.min(LEVELS - 1, cosine * LEVELS);
+    }
+
+    // Цвет rgb на каждой ступени яркости
+    public static int[] palette(int rgb) {
+        int[] palette = new int[LEVELS];
+        for (int level = 0; level < LEVELS; level++) {
+            double intensity = AMBIENT + (1 - AMBIENT) * (level + 0.5) / LEVELS;
+            int r = (int) (((rgb >> 16) & 0xFF) * intensity);
+            int g = (int) (((rgb >> 8) & 0xFF) * intensity);
+            int b = (int) ((rgb & 0xFF) * intensity);
+            palette[level] = (r << 16) | (g << 8) | b;
+        }
+        return palette;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Событие JFR на каждый кадр: длительность события — время кадра, поля — фазы и счётчики.
+// Записывается, пока идёт запись JFR, например: java -XX:StartFlightRecording:filename=frames.jfr ModelViewer
+@Name("task4.Frame")
+@Label("Frame")
+@Category({"Task4", "Rendering"})
+@Description("One rendered frame of the model viewer")
+@StackTrace(false)
+class FrameEvent extends Event {
+    @Label("Projection") @Timespan(Timespan.NANOSECONDS)
+    long projection;
+
+    @Label("Culling") @Timespan(Timespan.NANOSECONDS)
+    long culling;
+
+    @Label("Shading") @Timespan(Timespan.NANOSECONDS)
+    long shading;
+
+    @Label("Fill") @Timespan(Timespan.NANOSECONDS)
+    long fill;
+
+    @Label("Stroke") @Timespan(Timespan.NANOSECONDS)
+    long stroke;
+
+    @Label("Vertex Dots") @Timespan(Timespan.NANOSECONDS)
+    long vertices;
+
+    @Label("Z-Buffer Raster") @Timespan(Timespan.NANOSECONDS)
+    long raster;
+
+    @Label("Picking") @Timespan(Timespan.NANOSECONDS)
+    long picking;
+
+    @Label("Drawn Faces")
+    int drawnFaces;
+
+    @Label("Culled Faces")
+    int culledFaces;
+
+    @Label("Drawn Vertices")
+    int drawnVertices;
+
+    @Label("Allocated") @DataAmount(DataAmount.BYTES)
+    long allocated;
+}
\ No newline at end of file
@@ -0,0 +1,238 @@
+import jdk.jfr.EventType;
+
+import java.awt.*;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Замер времени кадра по фазам и счётчиков отрисованных и отсечённых элементов.
+// Кадры хранятся в кольцевом буфере: по последним WINDOW считаются процентили для наложения на экран,
+// весь буфер можно выгрузить в CSV. Каждый кадр также отправляется событием JFR (FrameEvent).
+// Замеры включаются, только когда показано наложение или событие включено в записи JFR
+class FrameProfiler {
+    enum Phase {
+        PROJECTION("Projection"),
+        CULLING("Culling"),
+        SHADING("Shading"),
+        FILL("Fill"),
+        STROKE("Stroke"),
+        VERTICES("Vertex dots"),
+        RASTER("Z-buffer raster"),
+        PICKING("Picking");
+
+        final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final int HISTORY = 1024;    // Кадров в буфере для выгрузки
+    private static final int WINDOW = 240;      // Кадров для процентилей
+    private static final EventType FRAME_EVENT = EventType.getEventType(FrameEvent.class);
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    // Столбцы строки кадра
+    private static final int TIME = 0;          // Момент окончания кадра, мс
+    private static final int TOTAL = 1;         // Длительность кадра, нс
+    private static final int PHASES = 2;        // Далее фазы в порядке Phase, нс
+    private static final int DRAWN_FACES = PHASES + Phase.values().length;
+    private static final int CULLED_FACES = DRAWN_FACES + 1;
+    private static final int DRAWN_VERTICES = DRAWN_FACES + 2;
+    private static final int ALLOCATED = DRAWN_FACES + 3;
+    private static final int COLUMNS = DRAWN_FACES + 4;
+
+    private volatile boolean overlay;
+
+    // Текущий кадр (меняется только рисующим потоком)
+    private final long[] current = new long[COLUMNS];
+    private long frameStart;
+    private long allocationStart;
+    private FrameEvent event;
+
+    // Кольцевой буфер кадров (под блокировкой this)
+    private final long[][] history = new long[HISTORY][COLUMNS];
+    private int frames;
+    private long pendingPicking;               // Время выбора мышью между кадрами
+
+    private final long[] sorted = new long[WINDOW];
+
+    public void setOverlay(boolean overlay) {
+        this.overlay = overlay;
+    }
+
+    public boolean isOverlay() {
+        return overlay;
+    }
+
+    // Нужно ли замерять кадры
+    public boolean isActive() {
+        return overlay || FRAME_EVENT.isEnabled();
+    }
+
+    public void beginFrame() {
+        Arrays.fill(current, 0);
+        if (FRAME_EVENT.isEnabled()) {
+            event = new FrameEvent();
+            event.begin();
+        }
+        allocationStart = allocatedBytes();
+        frameStart = System.nanoTime();
+    }
+
+    // Добавление времени с момента start к фазе
+    public void add(Phase phase, long start) {
+        current[PHASES + phase.ordinal()] += System.nanoTime() - start;
+    }
+
+    public void count(int drawnFaces, int culledFaces, int drawnVertices) {
+        current[DRAWN_FACES] = drawnFaces;
+        current[CULLED_FACES] = culledFaces;
+        current[DRAWN_VERTICES] = drawnVertices;
+    }
+
+    // Выбор мышью идёт между кадрами и попадает в следующий кадр
+    public synchronized void addPicking(long nanos) {
+        pendingPicking += nanos;
+    }
+
+    public void endFrame() {
+        current[TOTAL] = System.nanoTime() - frameStart;
+        current[TIME] = System.currentTimeMillis();
+        current[ALLOCATED] = Math.max(0, allocatedBytes() - allocationStart);
+        synchronized (this) {
+            current[PHASES + Phase.PICKING.ordinal()] += pendingPicking;
+            pendingPicking = 0;
+            System.arraycopy(current, 0, history[frames % HISTORY], 0, COLUMNS);
+            frames++;
+        }
+
+        if (event != null) {
+            event.projection = phase(Phase.PROJECTION);
+            event.culling = phase(Phase.CULLING);
+            event.shading = phase(Phase.SHADING);
+            event.fill = phase(Phase.FILL);
+            event.stroke = phase(Phase.STROKE);
+            event.vertices = phase(Phase.VERTICES);
+            event.raster = phase(Phase.RASTER);
+            event.picking = phase(Phase.PICKING);
+            event.drawnFaces = (int) current[DRAWN_FACES];
+            event.culledFaces = (int) current[CULLED_FACES];
+            event.drawnVertices = (int) current[DRAWN_VERTICES];
+            event.allocated = current[ALLOCATED];
+            event.commit();
+            event = null;
+        }
+    }
+
+    private long phase(Phase phase) {
+        return current[PHASES + phase.ordinal()];
+    }
+
+    // Процентиль столбца по последним WINDOW кадрам
+    private long percentile(int column, double p) {
+        int count = Math.min(frames, WINDOW);
+        if (count == 0) return 0;
+        for (int i = 0; i < count; i++) {
+            sorted[i] = history[(frames - 1 - i) % HISTORY][column];
+        }
+        Arrays.sort(sorted, 0, count);
+        return sorted[Math.min(count - 1, (int) Math.ceil(p * count) - 1)];
+    }
+
+    // Таблица поверх кадра в правом верхнем углу
+    public synchronized void drawOverlay(Graphics2D g2d, int width) {
+        if (frames == 0) return;
+        long[] last = history[(frames - 1) % HISTORY];
+        int count = Math.min(frames, WINDOW);
+        long first = history[(frames - count) % HISTORY][TIME];
+        double fps = count > 1 && last[TIME] > first ? (count - 1) * 1000.0 / (last[TIME] - first) : 0;
+
+        String[] lines = new String[Phase.values().length + 4];
+        int line = 0;
+        lines[line++] = String.format(Locale.ROOT, "%-16s %7s %7s %7s", "ms", "p50", "p95", "p99");
+        lines[line++] = row("Frame", TOTAL);
+        for (Phase phase : Phase.values()) {
+            lines[line++] = row(phase.label, PHASES + phase.ordinal());
+        }
+        lines[line++] = String.format(Locale.ROOT, "Faces %d drawn, %d culled; vertices %d",
+                last[DRAWN_FACES], last[CULLED_FACES], last[DRAWN_VERTICES]);
+        lines[line] = String.format(Locale.ROOT, "%.1f fps, %d KB allocated", fps, last[ALLOCATED] / 1024);
+
+        Font font = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+        FontMetrics metrics = g2d.getFontMetrics(font);
+        int boxWidth = 0;
+        for (String text : lines) boxWidth = Math.max(boxWidth, metrics.stringWidth(text));
+        boxWidth += 12;
+        int boxHeight = lines.length * metrics.getHeight() + 8;
+        int x = width - boxWidth - 8, y = 8;
+
+        g2d.setColor(new Color(0, 0, 0, 160));
+        g2d.fillRect(x, y, boxWidth, boxHeight);
+        g2d.setColor(Color.WHITE);
+        g2d.setFont(font);
+        for (int i = 0; i < lines.length; i++) {
+            g2d.drawString(lines[i], x + 6, y + 4 + metrics.getAscent() + i * metrics.getHeight());
+        }
+    }
+
+    private String row(String label, int column) {
+        return String.format(Locale.ROOT, "%-16s %7.2f %7.2f %7.2f", label,
+                percentile(column, 0.50) / 1e6, percentile(column, 0.95) / 1e6, percentile(column, 0.99) / 1e6);
+    }
+
+    // Выгрузка последних кадров в CSV (времена в миллисекундах)
+    public void exportCsv(File file) throws IOException {
+        long[][] rows;
+        synchronized (this) {
+            int count = Math.min(frames, HISTORY);
+            rows = new long[count][];
+            for (int i = 0; i < count; i++) {
+                rows[i] = history[(frames - count + i) % HISTORY].clone();
+            }
+        }
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            StringBuilder header = new StringBuilder("time_ms,frame_ms");
+            for (Phase phase : Phase.values()) {
+                header.append(',').append(phase.name().toLowerCase(Locale.ROOT)).append("_ms");
+            }
+            header.append(",drawn_faces,culled_faces,drawn_vertices,allocated_bytes");
+            writer.write(header.toString());
+            writer.newLine();
+
+            for (long[] row : rows) {
+                StringBuilder text = new StringBuilder();
+                text.append(row[TIME]).append(',').append(String.format(Locale.ROOT, "%.3f", row[TOTAL] / 1e6));
+                for (Phase phase : Phase.values()) {
+                    text.append(',').append(String.format(Locale.ROOT, "%.3f", row[PHASES + phase.ordinal()] / 1e6));
+                }
+                text.append(',').append(row[DRAWN_FACES]).append(',').append(row[CULLED_FACES])
+                        .append(',').append(row[DRAWN_VERTICES]).append(',').append(row[ALLOCATED]);
+                writer.write(text.toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    // Память, выделенная рисующим потоком (без потоков растеризатора); 0, если JVM этого не умеет
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        }
+        return null;
+    }
+}
\ No newline at end of file
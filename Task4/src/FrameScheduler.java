@@ -0,0 +1,81 @@
+import javax.swing.*;
+import java.awt.*;
+
+// Планировщик кадров анимации. Анимация получает прошедшее время, а не число тиков,
+// поэтому скорость вращения не зависит от нагрузки. Новый кадр запрашивается, только когда
+// предыдущий уже нарисован: при медленной отрисовке тики пропускаются, а не копятся в очереди.
+// Тики идут не чаще частоты обновления экрана
+class FrameScheduler {
+    private static final int DEFAULT_REFRESH_RATE = 60;
+    private static final double MAX_STEP = 0.25;            // Дольше, с: после паузы модель не перескакивает
+    private static final long STALL_LIMIT = 1_000_000_000L;  // Кадр так и не нарисован (панель скрыта), нс
+
+    // Анимация, продвигаемая на прошедшее время
+    interface Animation {
+        void advance(double seconds);
+    }
+
+    private final JComponent target;
+    private final Timer timer;
+    private Animation animation;
+    private long lastStep;             // Время последнего шага анимации, нс
+    private long requested;            // Время запроса кадра, который ещё не нарисован; 0, если ждать нечего
+    private int skipped;               // Тиков пропущено в ожидании отрисовки
+
+    public FrameScheduler(JComponent target) {
+        this.target = target;
+        timer = new Timer(1000 / DEFAULT_REFRESH_RATE, e -> tick());
+        timer.setCoalesce(true);
+    }
+
+    public void start(Animation animation) {
+        this.animation = animation;
+        timer.setDelay(frameInterval());
+        lastStep = System.nanoTime();
+        requested = 0;
+        timer.start();
+    }
+
+    public void stop() {
+        timer.stop();
+        animation = null;
+    }
+
+    public boolean isRunning() {
+        return timer.isRunning();
+    }
+
+    public int getSkippedTicks() {
+        return skipped;
+    }
+
+    // Вызывается панелью после отрисовки кадра
+    public void framePainted() {
+        requested = 0;
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        if (requested != 0 && now - requested < STALL_LIMIT) {
+            skipped++;
+            return;
+        }
+        double seconds = Math.min(MAX_STEP, (now - lastStep) / 1e9);
+        lastStep = now;
+        animation.advance(seconds);
+        requested = now;
+        target.repaint();
+    }
+
+    // Интервал тиков по частоте обновления экрана панели (-Dmodelviewer.maxFps ограничивает её сверху)
+    private int frameInterval() {
+        int rate = DEFAULT_REFRESH_RATE;
+        GraphicsConfiguration configuration = target.getGraphicsConfiguration();
+        if (configuration != null) {
+            int refresh = configuration.getDevice().getDisplayMode().getRefreshRate();
+            if (refresh != DisplayMode.REFRESH_RATE_UNKNOWN) rate = refresh;
+        }
+        rate = Math.max(1, Math.min(rate, Integer.getInteger("modelviewer.maxFps", rate)));
+        return Math.max(1, 1000 / rate);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+
+// Упрощённые версии модели для отрисовки во время вращения.
+// Уровни строятся в фоновом потоке цепочкой: каждый следующий в LEVEL_RATIO раз грубее предыдущего,
+// пока не уложится в FACE_BUDGET треугольников. Готовый уровень сразу доступен через getCoarsest()
+class LevelOfDetail {
+    // Сколько треугольников можно рисовать во время вращения без потери плавности
+    static final int FACE_BUDGET = 20000;
+    private static final int LEVEL_RATIO = 4;
+
+    private static final ExecutorService BUILDER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "LevelOfDetail-builder");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private final Model3D source;
+    private final int sourceVersion;
+    private final Future<?> task;
+    private volatile Model3D coarsest;   // Самый грубый из уже построенных уровней
+
+    // editLock держат правки модели; onReady вызывается из фонового потока после каждого построенного уровня
+    public LevelOfDetail(Model3D source, Lock editLock, Runnable onReady) {
+        this.source = source;
+        sourceVersion = source.getVersion();
+
+        task = BUILDER.submit(() -> {
+            try {
+                // Копия снимается в фоновом потоке, а не при отрисовке: на время копирования правки ждут.
+                // Если модель уже изменили, эта версия не нужна — при следующем вращении построение начнётся заново
+                Model3D level;
+                editLock.lockInterruptibly();
+                try {
+                    if (source.getVersion() != sourceVersion) return;
+                    level = copyOf(source);
+                } finally {
+                    editLock.unlock();
+                }
+                while (level.getFaceCount() > FACE_BUDGET) {
+                    int target = Math.max(FACE_BUDGET, level.getFaceCount() / LEVEL_RATIO);
+                    Model3D next = LodBuilder.simplify(level, target);
+                    // Прерван или упрощать дальше не получается
+                    if (next == null || next.getFaceCount() >= level.getFaceCount()) return;
+                    level = next;
+                    coarsest = level;
+                    onReady.run();
+                }
+            } catch (InterruptedException e) {
+                // Отменено до снятия копии
+            } catch (RuntimeException | OutOfMemoryError e) {
+                // Результат задачи никто не читает: без сообщения ошибка пропала бы вместе с упрощённой версией.
+                // Во время вращения остаются готовые уровни или полная модель
+                System.err.println("Level of detail failed: " + e);
+            }
+        });
+    }
+
+    // Фоновый поток работает с копией, чтобы правки модели в потоке Swing ему не мешали
+    private static Model3D copyOf(Model3D source) {
+        Model3D copy = new Model3D();
+        int faces = source.getFaceCount();
+        copy.setMesh(Arrays.copyOf(source.getCoords(), source.getVertexCount() * 3), source.getVertexCount(),
+                Arrays.copyOf(source.getFaceOffsets(), faces + 1),
+                Arrays.copyOf(source.getFaceIndices(), source.getIndexCount()), faces);
+        return copy;
+    }
+
+    // Нужна ли модели упрощённая версия. Модель вне кучи не упрощается: копия для упрощения не поместится в кучу
+    public static boolean isNeeded(Model3D model) {
+        return model.getFaceCount() > FACE_BUDGET && !model.isOffHeap();
+    }
+
+    // Построены ли уровни для этой модели в её текущем состоянии
+    public boolean isFor(Model3D model) {
+        return source == model && sourceVersion == model.getVersion();
+    }
+
+    // Самый грубый готовый уровень или null, если ещё ни один не построен
+    public Model3D getCoarsest() {
+        return coarsest;
+    }
+
+    public void cancel() {
+        task.cancel(true);
+    }
+}
\ No newline at end of file
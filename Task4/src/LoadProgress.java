@@ -0,0 +1,64 @@
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Ход загрузки файла и флаг отмены. Читающие потоки добавляют прочитанные байты и проверяют отмену,
+// интерфейс опрашивает долю по таймеру (без обратных вызовов из фоновых потоков).
+// Если задан получатель частичной модели, файл читается последовательно и каждые previewBatch новых
+// полигонов получатель получает снимок уже прочитанной части
+class LoadProgress {
+    // Получатель снимков (вызывается в читающем потоке)
+    interface PreviewListener {
+        void preview(Model3D partial);
+    }
+
+    private volatile long total;
+    private final AtomicLong done = new AtomicLong();
+    private volatile boolean cancelled;
+    private PreviewListener previewListener;
+    private int previewBatch;
+    private int previewedFaces;
+
+    public void setTotal(long total) {
+        this.total = total;
+        done.set(0);
+    }
+
+    public void add(long bytes) {
+        done.addAndGet(bytes);
+    }
+
+    // Доля от 0 до 1
+    public double getFraction() {
+        long total = this.total;
+        return total > 0 ? Math.min(1.0, (double) done.get() / total) : 0;
+    }
+
+    public void setPreview(PreviewListener listener, int batch) {
+        previewListener = listener;
+        previewBatch = batch;
+    }
+
+    public boolean wantsPreview() {
+        return previewListener != null;
+    }
+
+    // Вызывается читающим потоком после очередного блока: снимок, если набралось достаточно новых полигонов
+    public void offer(Model3D model) {
+        if (previewListener == null || model.getFaceCount() - previewedFaces < previewBatch) return;
+        previewedFaces = model.getFaceCount();
+        previewListener.preview(model.snapshot());
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Прерывание чтения, если загрузку отменили
+    public void check() throws InterruptedIOException {
+        if (cancelled) throw new InterruptedIOException("Loading cancelled");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,428 @@
+import java.util.Arrays;
+
+// Упрощение сетки стягиванием рёбер по квадрикам ошибки (Garland — Heckbert).
+// Полигоны разбиваются веером на треугольники, каждая вершина накапливает квадрику плоскостей
+// своих треугольников, рёбра стягиваются в порядке возрастания ошибки, пока не останется нужное число треугольников.
+// Слияния вершин ведутся через систему непересекающихся множеств, устаревшие записи кучи отбрасываются при извлечении
+class LodBuilder {
+    private static final double BOUNDARY_WEIGHT = 1000.0;  // Вес плоскостей, удерживающих край открытой сетки
+    private static final int CHECK_INTERVAL = 4096;        // Как часто проверяется прерывание потока
+
+    private final int vertexCount;
+    private final double[] position;     // x, y, z на вершину (меняется при стягивании)
+    private final double[] quadric;      // 10 коэффициентов симметричной матрицы 4x4 на вершину
+    private final int[] parent;          // Корень множества, в которое слита вершина
+    private final int[] stamp;           // Меняется при каждом изменении вершины
+    private final int[] visited;         // Номер последнего стягивания, в котором вершина уже получила ребро
+    private int collapses;
+
+    private final int[] triangles;       // 3 индекса на треугольник (исходные номера вершин)
+    private final boolean[] removed;
+    private int liveTriangles;
+
+    // Треугольники при вершине: односвязные списки, при слиянии список присоединяется за O(1)
+    private final int[] head;
+    private final int[] tail;
+    private final int[] linkTriangle;
+    private final int[] linkNext;
+
+    // Куча кандидатов на стягивание: стоимость, концы ребра и их отметки на момент расчёта
+    private double[] heapCost = new double[1024];
+    private int[] heapA = new int[1024];
+    private int[] heapB = new int[1024];
+    private int[] heapStampA = new int[1024];
+    private int[] heapStampB = new int[1024];
+    private int heapSize;
+
+    private final double[] target = new double[3];
+    private final double[] candidate = new double[3];
+
+    // Упрощённая копия модели не более чем с maxTriangles треугольниками; null, если поток прерван
+    public static Model3D simplify(Model3D model, int maxTriangles) {
+        LodBuilder builder = new LodBuilder(model);
+        if (!builder.collapse(maxTriangles)) return null;
+        return builder.toModel();
+    }
+
+    private LodBuilder(Model3D model) {
+        vertexCount = model.getVertexCount();
+        float[] coords = model.getCoords();
+        position = new double[vertexCount * 3];
+        for (int i = 0; i < vertexCount * 3; i++) position[i] = coords[i];
+        quadric = new double[vertexCount * 10];
+        parent = new int[vertexCount];
+        for (int i = 0; i < vertexCount; i++) parent[i] = i;
+        stamp = new int[vertexCount];
+        visited = new int[vertexCount];
+
+        // Разбиение полигонов веером на треугольники; полигоны с номерами вершин вне модели отбрасываются
+        int count = 0;
+        for (int f = 0; f < model.getFaceCount(); f++) {
+            if (isValidFace(model, f)) count += Math.max(0, model.getFaceSize(f) - 2);
+        }
+        int[] tris = new int[count * 3];
+        int t = 0;
+        for (int f = 0; f < model.getFaceCount(); f++) {
+            if (!isValidFace(model, f)) continue;
+            int start = model.getFaceStart(f);
+            int size = model.getFaceSize(f);
+            int first = model.getIndex(start);
+            for (int j = 1; j < size - 1; j++) {
+                tris[t++] = first;
+                tris[t++] = model.getIndex(start + j);
+                tris[t++] = model.getIndex(start + j + 1);
+            }
+        }
+        triangles = tris;
+        removed = new boolean[count];
+        liveTriangles = count;
+
+        head = new int[vertexCount];
+        tail = new int[vertexCount];
+        Arrays.fill(head, -1);
+        Arrays.fill(tail, -1);
+        linkTriangle = new int[count * 3];
+        linkNext = new int[count * 3];
+        for (int i = 0; i < count * 3; i++) {
+            int v = triangles[i];
+            linkTriangle[i] = i / 3;
+            linkNext[i] = -1;
+            if (head[v] < 0) head[v] = i;
+            else linkNext[tail[v]] = i;
+            tail[v] = i;
+        }
+
+        for (int tri = 0; tri < count; tri++) {
+            int a = triangles[tri * 3], b = triangles[tri * 3 + 1], c = triangles[tri * 3 + 2];
+            if (a == b || b == c || a == c) {
+                removed[tri] = true;
+                liveTriangles--;
+                continue;
+            }
+            addTriangleQuadric(a, b, c);
+        }
+        addEdges();
+    }
+
+    // Все вершины полигона есть в модели (такие полигоны пропускают и отсечение, и выбор мышью)
+    private static boolean isValidFace(Model3D model, int face) {
+        int start = model.getFaceStart(face);
+        for (int j = 0; j < model.getFaceSize(face); j++) {
+            int vertex = model.getIndex(start + j);
+            if (vertex < 0 || vertex >= model.getVertexCount()) return false;
+        }
+        return true;
+    }
+
+    // Уникальные рёбра: ключ (меньший << 32 | больший), после сортировки одинаковые идут подряд.
+    // Ребро, встреченное один раз, лежит на краю сетки
+    private void addEdges() {
+        long[] keys = new long[triangles.length];
+        int count = 0;
+        for (int tri = 0; tri < removed.length; tri++) {
+            if (removed[tri]) continue;
+            for (int j = 0; j < 3; j++) {
+                int a = triangles[tri * 3 + j], b = triangles[tri * 3 + (j + 1) % 3];
+                keys[count++] = (long) Math.min(a, b) << 32 | Math.max(a, b);
+            }
+        }
+        Arrays.sort(keys, 0, count);
+
+        for (int i = 0; i < count; ) {
+            int j = i + 1;
+            while (j < count && keys[j] == keys[i]) j++;
+            int a = (int) (keys[i] >>> 32), b = (int) keys[i];
+            if (j - i == 1) addBoundaryQuadric(a, b);
+            i = j;
+        }
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && keys[i] == keys[i - 1]) continue;
+            push((int) (keys[i] >>> 32), (int) keys[i]);
+        }
+    }
+
+    private boolean collapse(int maxTriangles) {
+        int steps = 0;
+        while (liveTriangles > maxTriangles && heapSize > 0) {
+            if (++steps % CHECK_INTERVAL == 0 && Thread.currentThread().isInterrupted()) return false;
+
+            int a = heapA[0], b = heapB[0];
+            boolean current = stamp[a] == heapStampA[0] && stamp[b] == heapStampB[0]
+                    && parent[a] == a && parent[b] == b;
+            pop();
+            if (!current) continue;
+
+            optimalPosition(a, b, target);
+            if (flipsTriangle(a, b, target) || flipsTriangle(b, a, target)) continue;
+            merge(a, b, target);
+        }
+        return true;
+    }
+
+    // Вершина b сливается в a, которая переезжает в точку p
+    private void merge(int a, int b, double[] p) {
+        parent[b] = a;
+        stamp[a]++;
+        stamp[b]++;
+        collapses++;
+        visited[a] = collapses;
+        System.arraycopy(p, 0, position, a * 3, 3);
+        for (int k = 0; k < 10; k++) quadric[a * 10 + k] += quadric[b * 10 + k];
+
+        if (head[b] >= 0) {
+            if (head[a] < 0) head[a] = head[b];
+            else linkNext[tail[a]] = head[b];
+            tail[a] = tail[b];
+        }
+
+        // Удаление схлопнувшихся треугольников, чистка списка и новые рёбра от a к соседям
+        int previous = -1;
+        for (int link = head[a]; link >= 0; link = linkNext[link]) {
+            int tri = linkTriangle[link];
+            if (!removed[tri]) {
+                int x = find(triangles[tri * 3]), y = find(triangles[tri * 3 + 1]), z = find(triangles[tri * 3 + 2]);
+                if (x == y || y == z || x == z) {
+                    removed[tri] = true;
+                    liveTriangles--;
+                } else {
+                    pushOnce(a, x);
+                    pushOnce(a, y);
+                    pushOnce(a, z);
+                    previous = link;
+                    continue;
+                }
+            }
+            // Звено удалённого треугольника выкидывается из списка
+            if (previous < 0) head[a] = linkNext[link];
+            else linkNext[previous] = linkNext[link];
+        }
+        tail[a] = previous;
+        if (previous < 0) head[a] = -1;
+    }
+
+    // Переворачивает ли перенос вершины v в точку p какой-либо её треугольник (кроме общих с other)
+    private boolean flipsTriangle(int v, int other, double[] p) {
+        for (int link = head[v]; link >= 0; link = linkNext[link]) {
+            int tri = linkTriangle[link];
+            if (removed[tri]) continue;
+            int x = find(triangles[tri * 3]), y = find(triangles[tri * 3 + 1]), z = find(triangles[tri * 3 + 2]);
+            if (x == other || y == other || z == other) continue;
+            if (x == y || y == z || x == z) continue;
+
+            // Поворот так, чтобы v была первой вершиной
+            int u, w;
+            if (x == v) { u = y; w = z; }
+            else if (y == v) { u = z; w = x; }
+            else { u = x; w = y; }
+
+            double ux = position[u * 3] - position[v * 3], uy = position[u * 3 + 1] - position[v * 3 + 1], uz = position[u * 3 + 2] - position[v * 3 + 2];
+            double wx = position[w * 3] - position[v * 3], wy = position[w * 3 + 1] - position[v * 3 + 1], wz = position[w * 3 + 2] - position[v * 3 + 2];
+            double nx = uy * wz - uz * wy, ny = uz * wx - ux * wz, nz = ux * wy - uy * wx;
+
+            ux = position[u * 3] - p[0]; uy = position[u * 3 + 1] - p[1]; uz = position[u * 3 + 2] - p[2];
+            wx = position[w * 3] - p[0]; wy = position[w * 3 + 1] - p[1]; wz = position[w * 3 + 2] - p[2];
+            double mx = uy * wz - uz * wy, my = uz * wx - ux * wz, mz = ux * wy - uy * wx;
+            if (nx * mx + ny * my + nz * mz <= 0) return true;
+        }
+        return false;
+    }
+
+    private int find(int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    // Квадрика плоскости треугольника с весом, равным его площади
+    private void addTriangleQuadric(int a, int b, int c) {
+        double ax = position[a * 3], ay = position[a * 3 + 1], az = position[a * 3 + 2];
+        double e1x = position[b * 3] - ax, e1y = position[b * 3 + 1] - ay, e1z = position[b * 3 + 2] - az;
+        double e2x = position[c * 3] - ax, e2y = position[c * 3 + 1] - ay, e2z = position[c * 3 + 2] - az;
+        double nx = e1y * e2z - e1z * e2y, ny = e1z * e2x - e1x * e2z, nz = e1x * e2y - e1y * e2x;
+        double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (length == 0) return;
+        double weight = length * 0.5;
+        nx /= length;
+        ny /= length;
+        nz /= length;
+        double d = -(nx * ax + ny * ay + nz * az);
+        addPlane(a, nx, ny, nz, d, weight);
+        addPlane(b, nx, ny, nz, d, weight);
+        addPlane(c, nx, ny, nz, d, weight);
+    }
+
+    // Плоскость через краевое ребро перпендикулярно соседнему треугольнику, чтобы край не «съедался»
+    private void addBoundaryQuadric(int a, int b) {
+        int tri = -1;
+        for (int link = head[a]; link >= 0 && tri < 0; link = linkNext[link]) {
+            int t = linkTriangle[link];
+            if (removed[t]) continue;
+            for (int j = 0; j < 3; j++) {
+                if (triangles[t * 3 + j] == b) tri = t;
+            }
+        }
+        if (tri < 0) return;
+
+        int t0 = triangles[tri * 3], t1 = triangles[tri * 3 + 1], t2 = triangles[tri * 3 + 2];
+        double e1x = position[t1 * 3] - position[t0 * 3], e1y = position[t1 * 3 + 1] - position[t0 * 3 + 1], e1z = position[t1 * 3 + 2] - position[t0 * 3 + 2];
+        double e2x = position[t2 * 3] - position[t0 * 3], e2y = position[t2 * 3 + 1] - position[t0 * 3 + 1], e2z = position[t2 * 3 + 2] - position[t0 * 3 + 2];
+        double nx = e1y * e2z - e1z * e2y, ny = e1z * e2x - e1x * e2z, nz = e1x * e2y - e1y * e2x;
+
+        double ex = position[b * 3] - position[a * 3], ey = position[b * 3 + 1] - position[a * 3 + 1], ez = position[b * 3 + 2] - position[a * 3 + 2];
+        double px = ey * nz - ez * ny, py = ez * nx - ex * nz, pz = ex * ny - ey * nx;
+        double length = Math.sqrt(px * px + py * py + pz * pz);
+        if (length == 0) return;
+        px /= length;
+        py /= length;
+        pz /= length;
+        double d = -(px * position[a * 3] + py * position[a * 3 + 1] + pz * position[a * 3 + 2]);
+        double weight = BOUNDARY_WEIGHT * (ex * ex + ey * ey + ez * ez);
+        addPlane(a, px, py, pz, d, weight);
+        addPlane(b, px, py, pz, d, weight);
+    }
+
+    private void addPlane(int v, double a, double b, double c, double d, double weight) {
+        int q = v * 10;
+        quadric[q] += weight * a * a;
+        quadric[q + 1] += weight * a * b;
+        quadric[q + 2] += weight * a * c;
+        quadric[q + 3] += weight * a * d;
+        quadric[q + 4] += weight * b * b;
+        quadric[q + 5] += weight * b * c;
+        quadric[q + 6] += weight * b * d;
+        quadric[q + 7] += weight * c * c;
+        quadric[q + 8] += weight * c * d;
+        quadric[q + 9] += weight * d * d;
+    }
+
+    // Ошибка суммарной квадрики вершин a и b в точке p
+    private double error(int a, int b, double[] p) {
+        double[] q = quadric;
+        int i = a * 10, j = b * 10;
+        double x = p[0], y = p[1], z = p[2];
+        return (q[i] + q[j]) * x * x + 2 * (q[i + 1] + q[j + 1]) * x * y + 2 * (q[i + 2] + q[j + 2]) * x * z
+                + 2 * (q[i + 3] + q[j + 3]) * x + (q[i + 4] + q[j + 4]) * y * y + 2 * (q[i + 5] + q[j + 5]) * y * z
+                + 2 * (q[i + 6] + q[j + 6]) * y + (q[i + 7] + q[j + 7]) * z * z + 2 * (q[i + 8] + q[j + 8]) * z
+                + (q[i + 9] + q[j + 9]);
+    }
+
+    // Точка минимума квадрики (решение системы 3x3); если система вырождена — лучшая из концов и середины
+    private double optimalPosition(int a, int b, double[] p) {
+        int i = a * 10, j = b * 10;
+        double m00 = quadric[i] + quadric[j], m01 = quadric[i + 1] + quadric[j + 1], m02 = quadric[i + 2] + quadric[j + 2];
+        double m11 = quadric[i + 4] + quadric[j + 4], m12 = quadric[i + 5] + quadric[j + 5], m22 = quadric[i + 7] + quadric[j + 7];
+        double r0 = -(quadric[i + 3] + quadric[j + 3]), r1 = -(quadric[i + 6] + quadric[j + 6]), r2 = -(quadric[i + 8] + quadric[j + 8]);
+
+        double c00 = m11 * m22 - m12 * m12, c01 = m02 * m12 - m01 * m22, c02 = m01 * m12 - m02 * m11;
+        double det = m00 * c00 + m01 * c01 + m02 * c02;
+        double norm = Math.abs(m00) + Math.abs(m11) + Math.abs(m22);
+        double best = Double.MAX_VALUE;
+        if (Math.abs(det) > 1e-9 * norm * norm * norm) {
+            double c11 = m00 * m22 - m02 * m02, c12 = m01 * m02 - m00 * m12, c22 = m00 * m11 - m01 * m01;
+            p[0] = (c00 * r0 + c01 * r1 + c02 * r2) / det;
+            p[1] = (c01 * r0 + c11 * r1 + c12 * r2) / det;
+            p[2] = (c02 * r0 + c12 * r1 + c22 * r2) / det;
+            best = error(a, b, p);
+        }
+        for (int k = 0; k < 3; k++) {
+            for (int axis = 0; axis < 3; axis++) {
+                double pa = position[a * 3 + axis], pb = position[b * 3 + axis];
+                candidate[axis] = k == 0 ? pa : k == 1 ? pb : (pa + pb) * 0.5;
+            }
+            double e = error(a, b, candidate);
+            if (e < best) {
+                best = e;
+                System.arraycopy(candidate, 0, p, 0, 3);
+            }
+        }
+        return best;
+    }
+
+    // Ребро к соседу добавляется один раз за стягивание
+    private void pushOnce(int a, int neighbor) {
+        if (visited[neighbor] == collapses) return;
+        visited[neighbor] = collapses;
+        push(a, neighbor);
+    }
+
+    private void push(int a, int b) {
+        if (heapSize == heapCost.length) {
+            int capacity = heapSize * 2;
+            heapCost = Arrays.copyOf(heapCost, capacity);
+            heapA = Arrays.copyOf(heapA, capacity);
+            heapB = Arrays.copyOf(heapB, capacity);
+            heapStampA = Arrays.copyOf(heapStampA, capacity);
+            heapStampB = Arrays.copyOf(heapStampB, capacity);
+        }
+        double cost = optimalPosition(a, b, target);
+        int i = heapSize++;
+        while (i > 0) {
+            int up = (i - 1) >>> 1;
+            if (heapCost[up] <= cost) break;
+            move(up, i);
+            i = up;
+        }
+        heapCost[i] = cost;
+        heapA[i] = a;
+        heapB[i] = b;
+        heapStampA[i] = stamp[a];
+        heapStampB[i] = stamp[b];
+    }
+
+    private void pop() {
+        int last = --heapSize;
+        if (last == 0) return;
+        double cost = heapCost[last];
+        int i = 0;
+        while (true) {
+            int child = i * 2 + 1;
+            if (child >= last) break;
+            if (child + 1 < last && heapCost[child + 1] < heapCost[child]) child++;
+            if (heapCost[child] >= cost) break;
+            move(child, i);
+            i = child;
+        }
+        move(last, i);
+    }
+
+    private void move(int from, int to) {
+        heapCost[to] = heapCost[from];
+        heapA[to] = heapA[from];
+        heapB[to] = heapB[from];
+        heapStampA[to] = heapStampA[from];
+        heapStampB[to] = heapStampB[from];
+    }
+
+    // Сборка результата: только живые треугольники и используемые ими вершины
+    private Model3D toModel() {
+        int[] remap = new int[vertexCount];
+        Arrays.fill(remap, -1);
+        int vertices = 0;
+        int[] indices = new int[liveTriangles * 3];
+        int[] offsets = new int[liveTriangles + 1];
+        int faces = 0;
+        for (int tri = 0; tri < removed.length; tri++) {
+            if (removed[tri]) continue;
+            for (int j = 0; j < 3; j++) {
+                int v = find(triangles[tri * 3 + j]);
+                if (remap[v] < 0) remap[v] = vertices++;
+                indices[faces * 3 + j] = remap[v];
+            }
+            faces++;
+            offsets[faces] = faces * 3;
+        }
+
+        float[] coords = new float[vertices * 3];
+        for (int v = 0; v < vertexCount; v++) {
+            if (remap[v] < 0) continue;
+            for (int axis = 0; axis < 3; axis++) {
+                coords[remap[v] * 3 + axis] = (float) position[v * 3 + axis];
+            }
+        }
+        Model3D model = new Model3D();
+        model.setMesh(coords, vertices, offsets, indices, faces);
+        return model;
+    }
+}
\ No newline at end of file
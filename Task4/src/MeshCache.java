@@ -0,0 +1,284 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Двоичный кэш модели рядом с OBJ файлом (model.obj -> model.obj.meshcache).
+// Формат: заголовок и сырые массивы вершин и полигонов в little-endian.
+// Кэш действителен, пока у исходного файла не изменились размер и время изменения.
+// Модели больше кучи не читаются в массивы: кэш отображается в память и используется как есть (readOffHeap)
+class MeshCache {
+    private static final String SUFFIX = ".meshcache";
+    private static final int MAGIC = 0x4333444D;        // "M3DC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final long WINDOW_SIZE = 1L << 30;   // Отображение в память окнами по 1 ГБ
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final AtomicLong TEMP_COUNTER = new AtomicLong();
+
+    // Чтение модели: из кэша, если он актуален, иначе из OBJ с созданием кэша
+    public static Model3D read(File source, boolean parallel) throws IOException {
+        return read(source, parallel, null);
+    }
+
+    // Чтение с ходом загрузки и отменой (progress может быть null)
+    public static Model3D read(File source, boolean parallel, LoadProgress progress) throws IOException {
+        Model3D model = load(source);
+        if (model != null) return model;
+
+        // Размер и время берутся до чтения: если файл изменится во время разбора, кэш сразу окажется устаревшим
+        long sourceSize = source.length();
+        long sourceModified = source.lastModified();
+        model = ObjReader.read(source, parallel, progress);
+        try {
+            store(source, model, sourceSize, sourceModified);
+        } catch (IOException e) {
+            // Кэш необязателен: например, каталог может быть доступен только для чтения
+        }
+        return model;
+    }
+
+    public static File cacheFile(File source) {
+        return new File(source.getPath() + SUFFIX);
+    }
+
+    // Загрузка из кэша; null, если кэша нет или он устарел
+    public static Model3D load(File source) throws IOException {
+        File cache = cacheFile(source);
+        if (!cache.isFile()) return null;
+
+        try (FileChannel channel = FileChannel.open(cache.toPath(), StandardOpenOption.READ)) {
+            int[] counts = readHeader(channel, source);
+            if (counts == null) return null;
+            int vertexCount = counts[0];
+            int faceCount = counts[1];
+            int indexCount = counts[2];
+
+            float[] coords = new float[Math.max(1, vertexCount * 3)];
+            int[] offsets = new int[faceCount + 1];
+            int[] indices = new int[Math.max(1, indexCount)];
+
+            long position = HEADER_SIZE;
+            position = readFloats(channel, position, coords, vertexCount * 3);
+            position = readInts(channel, position, offsets, faceCount + 1);
+            readInts(channel, position, indices, indexCount);
+
+            Model3D model = new Model3D();
+            model.setMesh(coords, vertexCount, offsets, indices, faceCount);
+            return model;
+        }
+    }
+
+    // Модель только для чтения поверх отображённого кэша; null, если кэша нет или он устарел.
+    // Данные не копируются в кучу, их подгружает и вытесняет система по мере обращения
+    public static Model3D map(File source) throws IOException {
+        File cache = cacheFile(source);
+        if (!cache.isFile()) return null;
+
+        try (FileChannel channel = FileChannel.open(cache.toPath(), StandardOpenOption.READ)) {
+            int[] counts = readHeader(channel, source);
+            if (counts == null) return null;
+            return new Model3D(OffHeapMesh.map(channel, HEADER_SIZE, counts[0], counts[1], counts[2]));
+        }
+    }
+
+    // Чтение модели вне кучи: из кэша, если он актуален, иначе OBJ сначала переводится в кэш
+    public static Model3D readOffHeap(File source, LoadProgress progress) throws IOException {
+        Model3D model = map(source);
+        if (model != null) return model;
+
+        convert(source, progress);
+        model = map(source);
+        if (model == null) throw new IOException("Mesh cache for " + source.getName() + " changed while reading");
+        return model;
+    }
+
+    // Заголовок кэша: {vertexCount, faceCount, indexCount} или null, если кэш не от этого файла или повреждён
+    private static int[] readHeader(FileChannel channel, File source) throws IOException {
+        if (channel.size() < HEADER_SIZE) return null;
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) return null;
+        if (header.getLong() != source.length() || header.getLong() != source.lastModified()) return null;
+
+        int vertexCount = header.getInt();
+        int faceCount = header.getInt();
+        int indexCount = header.getInt();
+        long expected = HEADER_SIZE + (vertexCount * 3L + faceCount + 1L + indexCount) * 4;
+        if (vertexCount < 0 || faceCount < 0 || indexCount < 0 || channel.size() != expected) return null;
+        return new int[] {vertexCount, faceCount, indexCount};
+    }
+
+    // Перевод OBJ в кэш без сборки модели в памяти: части файла разбираются по очереди (ObjReader.readParts),
+    // вершины сразу пишутся в кэш, смещения и индексы — во временные файлы, которые в конце
+    // дописываются к кэшу. Индексы частей сдвигаются так же, как при склейке в ObjReader
+    public static void convert(File source, LoadProgress progress) throws IOException {
+        File cache = cacheFile(source);
+        long sourceSize = source.length();
+        long sourceModified = source.lastModified();
+        File temp = tempFile(cache, ".tmp");
+        File offsetsTemp = tempFile(cache, ".offsets.tmp");
+        File indicesTemp = tempFile(cache, ".indices.tmp");
+
+        try (FileChannel channel = open(temp);
+             FileChannel offsetsChannel = open(offsetsTemp);
+             FileChannel indicesChannel = open(indicesTemp)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer offsetsBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer indicesBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            // Место под заголовок: он известен только после чтения всего файла
+            channel.position(HEADER_SIZE);
+            int[] totals = new int[3];      // Вершины, полигоны и индексы уже записанных частей
+
+            ObjReader.readParts(source, progress, parser -> {
+                Model3D part = parser.getModel();
+                int vertexBase = totals[0];
+                int indexBase = totals[2];
+                int[] offsets = part.getFaceOffsets();
+                int[] indices = part.getFaceIndices();
+                for (int f = 0; f < part.getFaceCount(); f++) {
+                    offsets[f] += indexBase;
+                }
+                int[] relative = parser.getRelativePositions();
+                for (int i = 0; i < parser.getRelativeCount(); i++) {
+                    indices[relative[i]] += vertexBase;
+                }
+                writeFloats(channel, buffer, part.getCoords(), part.getVertexCount() * 3);
+                writeInts(offsetsChannel, offsetsBuffer, offsets, part.getFaceCount());
+                writeInts(indicesChannel, indicesBuffer, indices, part.getIndexCount());
+                totals[0] = Math.addExact(totals[0], part.getVertexCount());
+                totals[1] = Math.addExact(totals[1], part.getFaceCount());
+                totals[2] = Math.addExact(totals[2], part.getIndexCount());
+            });
+            writeInts(offsetsChannel, offsetsBuffer, new int[] {totals[2]}, 1);
+            drain(channel, buffer);
+            drain(offsetsChannel, offsetsBuffer);
+            drain(indicesChannel, indicesBuffer);
+
+            append(channel, offsetsChannel);
+            append(channel, indicesChannel);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(sourceSize).putLong(sourceModified);
+            header.putInt(totals[0]).putInt(totals[1]).putInt(totals[2]);
+            header.clear();
+            for (long position = 0; header.hasRemaining(); ) {
+                position += channel.write(header, position);
+            }
+        } catch (IOException | RuntimeException e) {
+            temp.delete();
+            throw e;
+        } finally {
+            offsetsTemp.delete();
+            indicesTemp.delete();
+        }
+        Files.move(temp.toPath(), cache.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Имя временного файла рядом с кэшем (для атомарной замены), своё у каждой записи:
+    // одновременные записи кэша одного файла из разных потоков и процессов не затирают друг друга
+    private static File tempFile(File cache, String suffix) {
+        return new File(cache.getPath() + "." + ProcessHandle.current().pid() + "-" + TEMP_COUNTER.incrementAndGet() + suffix);
+    }
+
+    private static FileChannel open(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE_NEW);
+    }
+
+    // Дописывание всего содержимого source в конец target
+    private static void append(FileChannel target, FileChannel source) throws IOException {
+        long size = source.size();
+        for (long done = 0; done < size; ) {
+            done += source.transferTo(done, size - done, target);
+        }
+    }
+
+    // Запись кэша: сначала во временный файл, затем атомарная замена.
+    // sourceSize и sourceModified — размер и время исходного файла на момент начала его чтения
+    public static void store(File source, Model3D model, long sourceSize, long sourceModified) throws IOException {
+        File cache = cacheFile(source);
+        File temp = tempFile(cache, ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE_NEW)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(sourceSize).putLong(sourceModified);
+            buffer.putInt(model.getVertexCount()).putInt(model.getFaceCount()).putInt(model.getIndexCount());
+            buffer.position(HEADER_SIZE);
+
+            writeFloats(channel, buffer, model.getCoords(), model.getVertexCount() * 3);
+            writeInts(channel, buffer, model.getFaceOffsets(), model.getFaceCount() + 1);
+            writeInts(channel, buffer, model.getFaceIndices(), model.getIndexCount());
+            drain(channel, buffer);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        Files.move(temp.toPath(), cache.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Массивы переносятся в буфер целыми блоками через float/int-представления буфера
+    private static void writeFloats(FileChannel channel, ByteBuffer buffer, float[] values, int count) throws IOException {
+        int done = 0;
+        while (done < count) {
+            if (buffer.remaining() < 4) drain(channel, buffer);
+            int part = Math.min(count - done, buffer.remaining() / 4);
+            buffer.asFloatBuffer().put(values, done, part);
+            buffer.position(buffer.position() + part * 4);
+            done += part;
+        }
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values, int count) throws IOException {
+        int done = 0;
+        while (done < count) {
+            if (buffer.remaining() < 4) drain(channel, buffer);
+            int part = Math.min(count - done, buffer.remaining() / 4);
+            buffer.asIntBuffer().put(values, done, part);
+            buffer.position(buffer.position() + part * 4);
+            done += part;
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Массовое копирование из отображённого файла; возвращает позицию после прочитанных данных
+    private static long readFloats(FileChannel channel, long position, float[] target, int count) throws IOException {
+        int done = 0;
+        while (done < count) {
+            int part = (int) Math.min(count - done, WINDOW_SIZE / 4);
+            map(channel, position, part * 4L).asFloatBuffer().get(target, done, part);
+            done += part;
+            position += part * 4L;
+        }
+        return position;
+    }
+
+    private static long readInts(FileChannel channel, long position, int[] target, int count) throws IOException {
+        int done = 0;
+        while (done < count) {
+            int part = (int) Math.min(count - done, WINDOW_SIZE / 4);
+            map(channel, position, part * 4L).asIntBuffer().get(target, done, part);
+            done += part;
+            position += part * 4L;
+        }
+        return position;
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,191 @@
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+// Массовое удаление вершин и полигонов прямо в массивах модели.
+// Старые номера вершин переводятся в новые через таблицу int[], выбор задаётся BitSet.
+// На больших моделях таблица и перенумерация индексов полигонов считаются параллельно по блокам,
+// сами массивы сдвигаются на месте одним последовательным проходом
+class MeshEditor {
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int PARALLEL_THRESHOLD = 1 << 18;
+
+    // Удаление вершин. Полигон остаётся, только если все его индексы указывают на оставшиеся вершины
+    // и у него не меньше трёх вершин
+    public static void deleteVertices(Model3D model, BitSet removed) {
+        int vertexCount = model.getVertexCount();
+        int faceCount = model.getFaceCount();
+        boolean parallel = vertexCount + faceCount >= PARALLEL_THRESHOLD;
+
+        int[] remap = buildRemap(removed, vertexCount, parallel);
+        int newVertexCount = vertexCount - removed.get(0, vertexCount).cardinality();
+
+        // Перенумерация индексов каждого полигона на его же месте; полигоны не пересекаются, поэтому блоки независимы
+        int[] offsets = model.getFaceOffsets();
+        int[] indices = model.getFaceIndices();
+        boolean[] keep = new boolean[faceCount];
+        forEachChunk(faceCount, parallel, (from, to) -> {
+            for (int f = from; f < to; f++) {
+                boolean valid = survives(offsets, indices, f, remap);
+                if (valid) {
+                    for (int i = offsets[f]; i < offsets[f + 1]; i++) indices[i] = remap[indices[i]];
+                }
+                keep[f] = valid;
+            }
+        });
+
+        // Сдвиг координат: новая позиция вершины никогда не больше старой
+        float[] coords = model.getCoords();
+        for (int v = 0; v < vertexCount; v++) {
+            int target = remap[v];
+            if (target >= 0 && target != v) {
+                System.arraycopy(coords, v * 3, coords, target * 3, 3);
+            }
+        }
+
+        // Координаты оставшихся полигонов не меняются, поэтому их нормали переезжают вместе с ними
+        float[] normals = model.currentFaceNormals();
+        int newFaceCount = compactFaces(offsets, indices, faceCount, keep, normals);
+        model.setMesh(coords, newVertexCount, offsets, indices, newFaceCount);
+        if (normals != null) model.setFaceNormals(normals, null);
+    }
+
+    // Полигоны, которые пропадут при удалении вершин removed (для записи в историю правок)
+    public static BitSet facesLostWith(Model3D model, BitSet removed) {
+        int faceCount = model.getFaceCount();
+        int[] remap = buildRemap(removed, model.getVertexCount(), false);
+        BitSet lost = new BitSet(faceCount);
+        for (int f = 0; f < faceCount; f++) {
+            if (!survives(model.getFaceOffsets(), model.getFaceIndices(), f, remap)) lost.set(f);
+        }
+        return lost;
+    }
+
+    // Остаётся ли полигон: не меньше трёх вершин и все индексы указывают на оставшиеся вершины
+    private static boolean survives(int[] offsets, int[] indices, int face, int[] remap) {
+        int start = offsets[face], end = offsets[face + 1];
+        if (end - start < 3) return false;
+        for (int i = start; i < end; i++) {
+            int v = indices[i];
+            if (v < 0 || v >= remap.length || remap[v] < 0) return false;
+        }
+        return true;
+    }
+
+    // Удаление полигонов по номерам
+    public static void deletePolygons(Model3D model, BitSet removed) {
+        int faceCount = model.getFaceCount();
+        boolean[] keep = new boolean[faceCount];
+        for (int f = 0; f < faceCount; f++) keep[f] = !removed.get(f);
+
+        int[] offsets = model.getFaceOffsets();
+        int[] indices = model.getFaceIndices();
+        float[] normals = model.currentFaceNormals();
+        int newFaceCount = compactFaces(offsets, indices, faceCount, keep, normals);
+        model.setMesh(model.getCoords(), model.getVertexCount(), offsets, indices, newFaceCount);
+        if (normals != null) model.setFaceNormals(normals, null);
+    }
+
+    // Удаление выродившихся полигонов: меньше трёх разных вершин подряд или индекс вне модели.
+    // Возвращает число удалённых
+    public static int deleteDegenerateFaces(Model3D model) {
+        int faceCount = model.getFaceCount();
+        int vertexCount = model.getVertexCount();
+        int[] offsets = model.getFaceOffsets();
+        int[] indices = model.getFaceIndices();
+        boolean[] keep = new boolean[faceCount];
+        forEachChunk(faceCount, faceCount >= PARALLEL_THRESHOLD, (from, to) -> {
+            for (int f = from; f < to; f++) keep[f] = !isDegenerate(offsets, indices, f, vertexCount);
+        });
+        float[] normals = model.currentFaceNormals();
+        int newFaceCount = compactFaces(offsets, indices, faceCount, keep, normals);
+        model.setMesh(model.getCoords(), vertexCount, offsets, indices, newFaceCount);
+        if (normals != null) model.setFaceNormals(normals, null);
+        return faceCount - newFaceCount;
+    }
+
+    // Удаление вершин, на которые не ссылается ни один полигон. Возвращает число удалённых
+    public static int deleteUnusedVertices(Model3D model) {
+        int vertexCount = model.getVertexCount();
+        int faceCount = model.getFaceCount();
+        int[] offsets = model.getFaceOffsets();
+        int[] indices = model.getFaceIndices();
+        // Блоки могут отмечать одну вершину одновременно, но пишут одно и то же значение
+        boolean[] used = new boolean[vertexCount];
+        forEachChunk(faceCount, vertexCount + faceCount >= PARALLEL_THRESHOLD, (from, to) -> {
+            for (int i = offsets[from]; i < offsets[to]; i++) {
+                int v = indices[i];
+                if (v >= 0 && v < vertexCount) used[v] = true;
+            }
+        });
+        BitSet unused = new BitSet(vertexCount);
+        for (int v = 0; v < vertexCount; v++) {
+            if (!used[v]) unused.set(v);
+        }
+        int removed = unused.cardinality();
+        if (removed > 0) deleteVertices(model, unused);
+        return removed;
+    }
+
+    private static boolean isDegenerate(int[] offsets, int[] indices, int face, int vertexCount) {
+        int start = offsets[face], end = offsets[face + 1];
+        int distinct = 0;
+        for (int i = start; i < end; i++) {
+            int v = indices[i];
+            if (v < 0 || v >= vertexCount) return true;
+            // Вершина, повторяющая предыдущую (для первой — последнюю), не добавляет угла
+            int previous = indices[i == start ? end - 1 : i - 1];
+            if (v != previous) distinct++;
+        }
+        return distinct < 3;
+    }
+
+    // Таблица старый номер вершины -> новый (-1 для удалённых): по блокам считается число оставшихся,
+    // префиксные суммы дают начало нумерации каждого блока
+    private static int[] buildRemap(BitSet removed, int vertexCount, boolean parallel) {
+        int[] remap = new int[vertexCount];
+        int chunks = (vertexCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int[] chunkStart = new int[chunks + 1];
+        for (int c = 0; c < chunks; c++) {
+            int from = c * CHUNK_SIZE, to = Math.min(vertexCount, from + CHUNK_SIZE);
+            chunkStart[c + 1] = chunkStart[c] + (to - from) - removed.get(from, to).cardinality();
+        }
+        forEachChunk(vertexCount, parallel, (from, to) -> {
+            int next = chunkStart[from / CHUNK_SIZE];
+            for (int v = from; v < to; v++) {
+                remap[v] = removed.get(v) ? -1 : next++;
+            }
+        });
+        return remap;
+    }
+
+    // Сдвиг оставшихся полигонов к началу массивов с пересчётом смещений (и их нормалей, если normals не null)
+    private static int compactFaces(int[] offsets, int[] indices, int faceCount, boolean[] keep, float[] normals) {
+        int faces = 0;
+        int write = 0;
+        for (int f = 0; f < faceCount; f++) {
+            int start = offsets[f], size = offsets[f + 1] - start;
+            if (!keep[f]) continue;
+            if (write != start) {
+                System.arraycopy(indices, start, indices, write, size);
+            }
+            // offsets[f] уже прочитан, поэтому запись на место faces <= f ничего не портит
+            offsets[faces] = write;
+            if (normals != null && faces != f) System.arraycopy(normals, f * 3, normals, faces * 3, 3);
+            write += size;
+            faces++;
+        }
+        offsets[faces] = write;
+        return faces;
+    }
+
+    private interface ChunkAction {
+        void run(int from, int to);
+    }
+
+    private static void forEachChunk(int count, boolean parallel, ChunkAction action) {
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream range = IntStream.range(0, chunks);
+        if (parallel) range = range.parallel();
+        range.forEach(c -> action.run(c * CHUNK_SIZE, Math.min(count, (c + 1) * CHUNK_SIZE)));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,154 @@
+// Выбор вершин и полигонов мышью через луч из точки клика и BVH модели.
+// Иерархии строятся в координатах модели при первом выборе и перестраиваются только после изменения модели
+class MeshPicker {
+    private Model3D model;
+    private int version;
+    private Bvh faceBvh;
+    private Bvh vertexBvh;
+    private float radius;                  // Радиус модели относительно начала координат
+
+    private final double[] origin = new double[3];
+    private final double[] direction = new double[3];
+    private final double[] point = new double[2];
+
+    // Ближайшая к камере грань под точкой клика (координаты от центра панели) или -1
+    public int pickFace(Model3D model, Projection projection, double clickX, double clickY) {
+        prepare(model);
+        castRay(projection, clickX, clickY);
+
+        int[] best = {-1};
+        faceBvh.traverse(origin, direction, Double.MAX_VALUE, 0, (face, tMax) -> {
+            double t = intersectFace(face, tMax);
+            if (t < tMax) {
+                best[0] = face;
+                return t;
+            }
+            return tMax;
+        });
+        return best[0];
+    }
+
+    // Ближайшая на экране вершина в пределах tolerance пикселей от клика или -1
+    public int pickVertex(Model3D model, Projection projection, double clickX, double clickY, double tolerance) {
+        prepare(model);
+        castRay(projection, clickX, clickY);
+
+        // Точки в пределах tolerance пикселей лежат не дальше margin от луча
+        double tFar = (Projection.DEPTH + radius) / Projection.DEPTH;
+        double margin = tolerance * tFar / projection.getScale();
+
+        int[] best = {-1};
+        double[] bestDistance = {tolerance};
+        vertexBvh.traverse(origin, direction, tFar, margin, (vertex, tMax) -> {
+            if (!projection.projectPoint(model.getX(vertex), model.getY(vertex), model.getZ(vertex), point)) {
+                return tMax;
+            }
+            double dx = point[0] - clickX, dy = point[1] - clickY;
+            double distance = Math.sqrt(dx * dx + dy * dy);
+            if (distance < bestDistance[0] || distance == bestDistance[0] && vertex < best[0]) {
+                bestDistance[0] = distance;
+                best[0] = vertex;
+            }
+            return tMax;
+        });
+        return best[0];
+    }
+
+    // Построение иерархий, если модель новая или изменилась
+    private void prepare(Model3D model) {
+        if (this.model == model && version == model.getVersion() && faceBvh != null) return;
+        this.model = model;
+        version = model.getVersion();
+
+        // Координаты читаются через методы модели: у модели вне кучи массива координат нет
+        int vertices = model.getVertexCount();
+        float[] bounds = new float[Math.max(vertices, model.getFaceCount()) * 6];
+        radius = 0;
+        for (int i = 0; i < vertices; i++) {
+            float x = model.getX(i), y = model.getY(i), z = model.getZ(i);
+            bounds[i * 6] = bounds[i * 6 + 3] = x;
+            bounds[i * 6 + 1] = bounds[i * 6 + 4] = y;
+            bounds[i * 6 + 2] = bounds[i * 6 + 5] = z;
+            radius = Math.max(radius, (float) Math.sqrt(x * x + y * y + z * z));
+        }
+        vertexBvh = new Bvh(bounds, vertices);
+
+        // Полигон с номером вершины вне модели получает пустую рамку: лучи его не задевают
+        float[] box = new float[6];
+        for (int f = 0; f < model.getFaceCount(); f++) {
+            for (int axis = 0; axis < 3; axis++) {
+                box[axis] = Float.MAX_VALUE;
+                box[3 + axis] = -Float.MAX_VALUE;
+            }
+            int start = model.getFaceStart(f);
+            int size = isValidFace(f) ? model.getFaceSize(f) : 0;
+            for (int j = 0; j < size; j++) {
+                int v = model.getIndex(start + j);
+                float x = model.getX(v), y = model.getY(v), z = model.getZ(v);
+                box[0] = Math.min(box[0], x);
+                box[1] = Math.min(box[1], y);
+                box[2] = Math.min(box[2], z);
+                box[3] = Math.max(box[3], x);
+                box[4] = Math.max(box[4], y);
+                box[5] = Math.max(box[5], z);
+            }
+            System.arraycopy(box, 0, bounds, f * 6, 6);
+        }
+        faceBvh = new Bvh(bounds, model.getFaceCount());
+    }
+
+    // Луч от камеры через точку экрана, переведённый в координаты модели.
+    // При t = 1 луч проходит плоскость z = 0 вида, где один пиксель равен 1 / scale
+    private void castRay(Projection projection, double clickX, double clickY) {
+        projection.toModel(0, 0, -Projection.DEPTH, origin);
+        projection.toModel(clickX / projection.getScale(), clickY / projection.getScale(), Projection.DEPTH, direction);
+    }
+
+    // Пересечение луча с полигоном, разбитым веером на треугольники (Мёллер — Трумбор); tMax, если нет
+    private double intersectFace(int face, double tMax) {
+        int start = model.getFaceStart(face);
+        int size = model.getFaceSize(face);
+        if (size < 3 || !isValidFace(face)) return tMax;
+        int a = model.getIndex(start);
+        for (int j = 1; j < size - 1; j++) {
+            double t = intersectTriangle(a, model.getIndex(start + j), model.getIndex(start + j + 1));
+            if (t > 0 && t < tMax) tMax = t;
+        }
+        return tMax;
+    }
+
+    // Все вершины полигона есть в модели (при импорте такие полигоны не удаляются, их пропускает и FaceCuller)
+    private boolean isValidFace(int face) {
+        int start = model.getFaceStart(face);
+        for (int j = 0; j < model.getFaceSize(face); j++) {
+            int vertex = model.getIndex(start + j);
+            if (vertex < 0 || vertex >= model.getVertexCount()) return false;
+        }
+        return true;
+    }
+
+    private double intersectTriangle(int a, int b, int c) {
+        double ax = model.getX(a), ay = model.getY(a), az = model.getZ(a);
+        double e1x = model.getX(b) - ax, e1y = model.getY(b) - ay, e1z = model.getZ(b) - az;
+        double e2x = model.getX(c) - ax, e2y = model.getY(c) - ay, e2z = model.getZ(c) - az;
+
+        double px = direction[1] * e2z - direction[2] * e2y;
+        double py = direction[2] * e2x - direction[0] * e2z;
+        double pz = direction[0] * e2y - direction[1] * e2x;
+        double det = e1x * px + e1y * py + e1z * pz;
+        if (Math.abs(det) < 1e-12) return -1;
+        double inverse = 1.0 / det;
+
+        double sx = origin[0] - ax, sy = origin[1] - ay, sz = origin[2] - az;
+        double u = (sx * px + sy * py + sz * pz) * inverse;
+        if (u < 0 || u > 1) return -1;
+
+        double qx = sy * e1z - sz * e1y;
+        double qy = sz * e1x - sx * e1z;
+        double qz = sx * e1y - sy * e1x;
+        double v = (direction[0] * qx + direction[1] * qy + direction[2] * qz) * inverse;
+        if (v < 0 || u + v > 1) return -1;
+
+        return (e2x * qx + e2y * qy + e2z * qz) * inverse;
+    }
+}
\ No newline at end of file
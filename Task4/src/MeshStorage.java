@@ -0,0 +1,14 @@
+// Доступ к геометрии модели только для чтения: координаты вершин по номерам и полигоны в формате CSR.
+// Отрисовка и загрузка обращаются к модели через эти методы, поэтому данные могут лежать
+// как в массивах на куче (Model3D), так и вне кучи (OffHeapMesh)
+interface MeshStorage {
+    int getVertexCount();
+    float getX(int vertex);
+    float getY(int vertex);
+    float getZ(int vertex);
+
+    int getFaceCount();
+    // Начало полигона среди индексов; для face = getFaceCount() — общее число индексов
+    int getFaceStart(int face);
+    int getIndex(int position);
+}
\ No newline at end of file
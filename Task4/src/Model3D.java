@@ -1,16 +1,413 @@
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
 // Класс для хранения 3D модели
-class Model3D {
-    private List<Vector3> vertices;    // Список вершин модели
-    private List<Face> polygons;       // Список полигонов модели
+// Геометрия хранится в плотных примитивных массивах: координаты вершин идут подряд (x, y, z),
+// полигоны хранятся в формате CSR (массив смещений + общий массив индексов вершин).
+// Модель только для чтения может вместо массивов опираться на данные вне кучи (MeshStorage)
+class Model3D implements MeshStorage {
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int PARALLEL_THRESHOLD = 1 << 18;
+
+    private float[] coords;        // Координаты вершин: x0, y0, z0, x1, y1, z1, ...
+    private int vertexCount;       // Количество вершин
+    private int[] faceOffsets;     // Начало каждого полигона в faceIndices (faceCount + 1 элементов)
+    private int[] faceIndices;     // Индексы вершин всех полигонов подряд
+    private int faceCount;         // Количество полигонов
+    private int version;           // Счётчик изменений геометрии (для кэшей, построенных по модели)
+    private MeshStorage external;  // Данные вне кучи (модель только для чтения); null — данные в массивах
+    private float[] faceNormals;   // Единичные нормали полигонов: nx0, ny0, nz0, ... (null, пока не запрошены)
+    private int normalsVersion = -1;   // Версия модели, для которой нормали верны
+
+    // Совместимые представления в виде списков для старого кода
+    private final List<Vector3> vertexView = new VertexList();
+    private final List<Face> polygonView = new FaceList();
 
     public Model3D() {
-        vertices = new ArrayList<>();
-        polygons = new ArrayList<>();
+        this(16, 16, 48);
+    }
+
+    // Конструктор с заранее известной ёмкостью (например, при загрузке больших файлов)
+    public Model3D(int vertexCapacity, int faceCapacity, int indexCapacity) {
+        coords = new float[Math.max(1, vertexCapacity) * 3];
+        faceOffsets = new int[Math.max(1, faceCapacity) + 1];
+        faceIndices = new int[Math.max(1, indexCapacity)];
+    }
+
+    // Модель только для чтения поверх данных вне кучи: массивы не создаются, правки запрещены
+    public Model3D(MeshStorage storage) {
+        this(1, 1, 1);
+        external = storage;
+        vertexCount = storage.getVertexCount();
+        faceCount = storage.getFaceCount();
+    }
+
+    // Данные лежат вне кучи: getCoords() и другие массивы недоступны, изменения бросают исключение
+    public boolean isOffHeap() { return external != null; }
+
+    // Списки вершин и полигонов. Элементы создаются при обращении и являются копиями:
+    // изменения полей полученного Vector3 или Face не попадают в модель, для этого нужен set()
+    public List<Vector3> getVertices() { return vertexView; }
+    public List<Face> getPolygons() { return polygonView; }
+
+    // Номер версии меняется при любом изменении вершин или полигонов
+    public int getVersion() { return version; }
+
+    // Отметка об изменении массивов, полученных через getCoords()/getFaceIndices()
+    public void markModified() { version++; }
+
+    // Доступ к вершинам
+    public int getVertexCount() { return vertexCount; }
+    public float getX(int vertex) { return external != null ? external.getX(vertex) : coords[vertex * 3]; }
+    public float getY(int vertex) { return external != null ? external.getY(vertex) : coords[vertex * 3 + 1]; }
+    public float getZ(int vertex) { return external != null ? external.getZ(vertex) : coords[vertex * 3 + 2]; }
+
+    public int addVertex(float x, float y, float z) {
+        checkWritable();
+        ensureVertexCapacity(vertexCount + 1);
+        int base = vertexCount * 3;
+        coords[base] = x;
+        coords[base + 1] = y;
+        coords[base + 2] = z;
+        // Новая вершина не меняет существующие полигоны, поэтому их нормали остаются верными
+        boolean normalsCurrent = normalsVersion == version;
+        version++;
+        if (normalsCurrent) normalsVersion = version;
+        return vertexCount++;
+    }
+
+    public void setVertex(int vertex, float x, float y, float z) {
+        checkWritable();
+        checkVertex(vertex);
+        int base = vertex * 3;
+        coords[base] = x;
+        coords[base + 1] = y;
+        coords[base + 2] = z;
+        version++;
+    }
+
+    // Доступ к полигонам
+    public int getFaceCount() { return faceCount; }
+    public int getFaceStart(int face) { return external != null ? external.getFaceStart(face) : faceOffsets[face]; }
+    public int getFaceSize(int face) { return getFaceStart(face + 1) - getFaceStart(face); }
+    public int getFaceVertex(int face, int corner) { return getIndex(getFaceStart(face) + corner); }
+    public int getIndexCount() { return getFaceStart(faceCount); }
+    public int getIndex(int position) { return external != null ? external.getIndex(position) : faceIndices[position]; }
+
+    public int addFace(int[] indices, int from, int count) {
+        checkWritable();
+        int start = faceOffsets[faceCount];
+        ensureFaceCapacity(faceCount + 1, start + count);
+        System.arraycopy(indices, from, faceIndices, start, count);
+        faceOffsets[++faceCount] = start + count;
+        // Если нормали уже посчитаны, досчитывается только нормаль нового полигона
+        boolean normalsCurrent = normalsVersion == version;
+        version++;
+        if (normalsCurrent) {
+            if (faceNormals.length < faceCount * 3) {
+                faceNormals = Arrays.copyOf(faceNormals, grow(faceNormals.length, faceCount * 3));
+            }
+            computeNormal(faceCount - 1, faceNormals);
+            normalsVersion = version;
+        }
+        return faceCount - 1;
+    }
+
+    public int addFace(int... indices) {
+        return addFace(indices, 0, indices.length);
+    }
+
+    // Прямой доступ к массивам для массовых операций (загрузка, сохранение, редактирование).
+    // Массивы могут быть длиннее используемой части
+    public float[] getCoords() { checkWritable(); return coords; }
+    public int[] getFaceOffsets() { checkWritable(); return faceOffsets; }
+    public int[] getFaceIndices() { checkWritable(); return faceIndices; }
+
+    // Снимок текущих вершин и полигонов без копирования массивов (показ модели, пока она загружается).
+    // Годится, пока в исходную модель только добавляют: новые данные пишутся за пределы снимка или в новые массивы
+    public Model3D snapshot() {
+        checkWritable();
+        Model3D copy = new Model3D(1, 1, 1);
+        copy.setMesh(coords, vertexCount, faceOffsets, faceIndices, faceCount);
+        return copy;
+    }
+
+    // Полная замена геометрии готовыми массивами (без копирования)
+    public void setMesh(float[] coords, int vertexCount, int[] faceOffsets, int[] faceIndices, int faceCount) {
+        checkWritable();
+        if (coords.length < vertexCount * 3 || faceOffsets.length < faceCount + 1
+                || faceIndices.length < faceOffsets[faceCount]) {
+            throw new IllegalArgumentException("Mesh arrays are shorter than the declared counts");
+        }
+        this.coords = coords;
+        this.vertexCount = vertexCount;
+        this.faceOffsets = faceOffsets;
+        this.faceIndices = faceIndices;
+        this.faceCount = faceCount;
+        version++;
+    }
+
+    // Нормали полигонов для текущей версии. При первом обращении после загрузки или правки в обход
+    // setFaceNormals пересчитываются все сразу, на больших моделях параллельно по блокам
+    public synchronized float[] getFaceNormals() {
+        if (normalsVersion != version) {
+            float[] normals = faceNormals != null && faceNormals.length >= faceCount * 3
+                    ? faceNormals : new float[Math.max(1, faceCount) * 3];
+            IntStream chunks = IntStream.range(0, (faceCount + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            if (faceCount >= PARALLEL_THRESHOLD) chunks = chunks.parallel();
+            chunks.forEach(c -> {
+                int to = Math.min(faceCount, (c + 1) * CHUNK_SIZE);
+                for (int f = c * CHUNK_SIZE; f < to; f++) computeNormal(f, normals);
+            });
+            faceNormals = normals;
+            normalsVersion = version;
+        }
+        return faceNormals;
+    }
+
+    // Нормали, ещё верные для текущей версии, или null. Правки берут их до изменения модели,
+    // переносят вместе с полигонами и возвращают через setFaceNormals вместо полного пересчёта
+    public synchronized float[] currentFaceNormals() {
+        return normalsVersion == version ? faceNormals : null;
+    }
+
+    // Нормали после правки: массив уже соответствует новым номерам полигонов,
+    // пересчитываются только changedFaces (null — пересчитывать нечего)
+    public synchronized void setFaceNormals(float[] normals, int[] changedFaces) {
+        if (normals.length < faceCount * 3) {
+            throw new IllegalArgumentException("Normal array is shorter than the face count");
+        }
+        if (changedFaces != null) {
+            for (int face : changedFaces) computeNormal(face, normals);
+        }
+        faceNormals = normals;
+        normalsVersion = version;
+    }
+
+    // Нормаль полигона по методу Ньюэлла: годится и для невыпуклых, и для неплоских полигонов.
+    // У вырожденного полигона нормаль нулевая
+    private void computeNormal(int face, float[] normals) {
+        int start = getFaceStart(face), end = getFaceStart(face + 1);
+        double nx = 0, ny = 0, nz = 0;
+        int previous = end - start >= 3 ? getIndex(end - 1) : -1;
+        for (int i = start; i < end && previous >= 0; i++) {
+            int current = getIndex(i);
+            if (previous >= vertexCount || current < 0 || current >= vertexCount) {
+                nx = ny = nz = 0;
+                break;
+            }
+            float ax = getX(previous), ay = getY(previous), az = getZ(previous);
+            float bx = getX(current), by = getY(current), bz = getZ(current);
+            nx += (double) (ay - by) * (az + bz);
+            ny += (double) (az - bz) * (ax + bx);
+            nz += (double) (ax - bx) * (ay + by);
+            previous = current;
+        }
+        double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        double inverse = length > 0 ? 1 / length : 0;
+        normals[face * 3] = (float) (nx * inverse);
+        normals[face * 3 + 1] = (float) (ny * inverse);
+        normals[face * 3 + 2] = (float) (nz * inverse);
+    }
+
+    // Удаление всей геометрии с сохранением выделенных массивов
+    public void clear() {
+        checkWritable();
+        vertexCount = 0;
+        faceCount = 0;
+        faceOffsets[0] = 0;
+        version++;
+    }
+
+    // Освобождение лишней памяти после загрузки
+    public void trimToSize() {
+        checkWritable();
+        coords = Arrays.copyOf(coords, Math.max(1, vertexCount) * 3);
+        faceOffsets = Arrays.copyOf(faceOffsets, faceCount + 1);
+        faceIndices = Arrays.copyOf(faceIndices, Math.max(1, faceOffsets[faceCount]));
+    }
+
+    private void ensureVertexCapacity(int vertices) {
+        if (vertices * 3 > coords.length) {
+            coords = Arrays.copyOf(coords, grow(coords.length, vertices * 3));
+        }
+    }
+
+    private void ensureFaceCapacity(int faces, int indices) {
+        if (faces + 1 > faceOffsets.length) {
+            faceOffsets = Arrays.copyOf(faceOffsets, grow(faceOffsets.length, faces + 1));
+        }
+        if (indices > faceIndices.length) {
+            faceIndices = Arrays.copyOf(faceIndices, grow(faceIndices.length, indices));
+        }
+    }
+
+    private static int grow(int current, int required) {
+        return Math.max(required, current + (current >> 1));
+    }
+
+    private void checkWritable() {
+        if (external != null) {
+            throw new UnsupportedOperationException("Model is stored off-heap and is read-only");
+        }
+    }
+
+    private void checkVertex(int vertex) {
+        if (vertex < 0 || vertex >= vertexCount) {
+            throw new IndexOutOfBoundsException("Vertex " + vertex + ", count " + vertexCount);
+        }
+    }
+
+    private void checkFace(int face) {
+        if (face < 0 || face >= faceCount) {
+            throw new IndexOutOfBoundsException("Face " + face + ", count " + faceCount);
+        }
+    }
+
+    // Вставка вершины в середину массива (сдвигает последующие вершины)
+    private void insertVertex(int vertex, float x, float y, float z) {
+        checkWritable();
+        ensureVertexCapacity(vertexCount + 1);
+        int base = vertex * 3;
+        System.arraycopy(coords, base, coords, base + 3, (vertexCount - vertex) * 3);
+        coords[base] = x;
+        coords[base + 1] = y;
+        coords[base + 2] = z;
+        vertexCount++;
+        version++;
+    }
+
+    private void removeVertices(int from, int to) {
+        checkWritable();
+        System.arraycopy(coords, to * 3, coords, from * 3, (vertexCount - to) * 3);
+        vertexCount -= to - from;
+        version++;
+    }
+
+    // Вставка полигона в середину CSR-массивов (сдвигает индексы и смещения последующих полигонов)
+    private void insertFace(int face, List<Integer> indices) {
+        checkWritable();
+        int count = indices.size();
+        int start = faceOffsets[face];
+        int end = faceOffsets[faceCount];
+        ensureFaceCapacity(faceCount + 1, end + count);
+
+        System.arraycopy(faceIndices, start, faceIndices, start + count, end - start);
+        for (int i = 0; i < count; i++) {
+            faceIndices[start + i] = indices.get(i);
+        }
+        System.arraycopy(faceOffsets, face + 1, faceOffsets, face + 2, faceCount - face);
+        faceOffsets[face + 1] = start + count;
+        faceCount++;
+        for (int f = face + 2; f <= faceCount; f++) {
+            faceOffsets[f] += count;
+        }
+        version++;
+    }
+
+    private void removeFaces(int from, int to) {
+        checkWritable();
+        int start = faceOffsets[from];
+        int removed = faceOffsets[to] - start;
+        int end = faceOffsets[faceCount];
+
+        System.arraycopy(faceIndices, start + removed, faceIndices, start, end - start - removed);
+        System.arraycopy(faceOffsets, to + 1, faceOffsets, from + 1, faceCount - to);
+        faceCount -= to - from;
+        for (int f = from + 1; f <= faceCount; f++) {
+            faceOffsets[f] -= removed;
+        }
+        version++;
+    }
+
+    // Представление вершин в виде списка Vector3
+    private class VertexList extends AbstractList<Vector3> {
+        @Override
+        public int size() { return vertexCount; }
+
+        @Override
+        public Vector3 get(int index) {
+            checkVertex(index);
+            return new Vector3(getX(index), getY(index), getZ(index));
+        }
+
+        @Override
+        public Vector3 set(int index, Vector3 vertex) {
+            Vector3 previous = get(index);
+            setVertex(index, vertex.x, vertex.y, vertex.z);
+            return previous;
+        }
+
+        @Override
+        public void add(int index, Vector3 vertex) {
+            if (index < 0 || index > vertexCount) {
+                throw new IndexOutOfBoundsException("Vertex " + index + ", count " + vertexCount);
+            }
+            insertVertex(index, vertex.x, vertex.y, vertex.z);
+            modCount++;
+        }
+
+        @Override
+        public Vector3 remove(int index) {
+            Vector3 previous = get(index);
+            removeVertices(index, index + 1);
+            modCount++;
+            return previous;
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            removeVertices(fromIndex, toIndex);
+            modCount++;
+        }
     }
 
-    public List<Vector3> getVertices() { return vertices; }
-    public List<Face> getPolygons() { return polygons; }
+    // Представление полигонов в виде списка Face
+    private class FaceList extends AbstractList<Face> {
+        @Override
+        public int size() { return faceCount; }
+
+        @Override
+        public Face get(int index) {
+            checkFace(index);
+            Face face = new Face();
+            for (int i = getFaceStart(index); i < getFaceStart(index + 1); i++) {
+                face.getVertexIndices().add(getIndex(i));
+            }
+            return face;
+        }
+
+        @Override
+        public Face set(int index, Face face) {
+            Face previous = get(index);
+            removeFaces(index, index + 1);
+            insertFace(index, face.getVertexIndices());
+            return previous;
+        }
+
+        @Override
+        public void add(int index, Face face) {
+            if (index < 0 || index > faceCount) {
+                throw new IndexOutOfBoundsException("Face " + index + ", count " + faceCount);
+            }
+            insertFace(index, face.getVertexIndices());
+            modCount++;
+        }
+
+        @Override
+        public Face remove(int index) {
+            Face previous = get(index);
+            removeFaces(index, index + 1);
+            modCount++;
+            return previous;
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            removeFaces(fromIndex, toIndex);
+            modCount++;
+        }
+    }
 }
\ No newline at end of file
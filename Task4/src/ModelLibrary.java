@@ -0,0 +1,277 @@
+import javax.swing.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Список открытых моделей с загрузкой в фоне и вытеснением из памяти.
+// Файлы читаются по одному в отдельном потоке; состояние записей меняется только в потоке Swing.
+// Когда загруженные модели занимают больше бюджета, неактивные и неизменённые модели выгружаются
+// (давно не открывавшиеся первыми) и читаются заново из файла или его кэша при следующем выборе
+class ModelLibrary {
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "ModelLibrary-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Новых полигонов между снимками частично загруженной модели
+    private static final int PREVIEW_BATCH = 100_000;
+
+    // Обработчик событий загрузки (вызывается в потоке Swing)
+    interface Listener {
+        void preview(Entry entry, Model3D partial);     // Часть выбранной модели, пока она читается
+        void loaded(Entry entry);
+        void failed(Entry entry, IOException error);   // В том числе InterruptedIOException при отмене
+    }
+
+    // Модель в списке: файл, загруженная геометрия (null, если выгружена или ещё читается)
+    static class Entry {
+        private File file;
+        private Model3D model;
+        private int savedVersion;       // Версия модели, совпадающая с содержимым файла
+        private long bytes;             // Память под массивы модели
+        private long lastUsed;          // Порядок последнего выбора для вытеснения
+        private LoadProgress loading;   // Текущая загрузка или null
+        private boolean everLoaded;     // Модель хотя бы раз была в памяти (иначе после отмены запись не нужна)
+        private VertexWelder.Report weldReport;     // Итог сварки вершин при последней загрузке или null
+
+        Entry(File file) {
+            this.file = file;
+        }
+
+        public File getFile() { return file; }
+        public Model3D getModel() { return model; }
+        public boolean isLoaded() { return model != null; }
+        public boolean isLoading() { return loading != null; }
+        public double getProgress() { return loading != null ? loading.getFraction() : 0; }
+        public boolean wasEverLoaded() { return everLoaded; }
+        public VertexWelder.Report getWeldReport() { return weldReport; }
+
+        // Изменения, которых нет в файле: такую модель нельзя выгрузить без потери правок
+        public boolean isModified() {
+            return model != null && model.getVersion() != savedVersion;
+        }
+
+        @Override
+        public String toString() {
+            String name = file.getName();
+            if (loading != null) return name + " (loading " + Math.round(getProgress() * 100) + "%)";
+            if (model == null) return name + " (unloaded)";
+            if (model.isOffHeap()) return name + " (read-only)";
+            return isModified() ? name + " *" : name;
+        }
+    }
+
+    private final long budget;
+    private final Listener listener;
+    private final List<Entry> entries = new ArrayList<>();
+    private boolean welding;            // Сварка совпадающих вершин после чтения файла
+    private float weldEpsilon;
+    private boolean edgeTables;         // Таблица рёбер после чтения файла (нужна пакетной отрисовке)
+    private long offHeapThreshold = Long.MAX_VALUE;    // Файлы больше порога читаются вне кучи
+    private volatile Entry active;     // Читается и загрузчиком: частичная модель нужна только для выбранной
+    private long useCounter;
+
+    public ModelLibrary(long budget, Listener listener) {
+        this.budget = budget;
+        this.listener = listener;
+    }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    // Новая запись в конце списка; файл начинает читаться в фоне
+    public Entry add(File file) {
+        Entry entry = new Entry(file);
+        entries.add(entry);
+        startLoading(entry);
+        return entry;
+    }
+
+    // Выбор активной модели; выгруженная модель загружается заново.
+    // true, если модель уже в памяти
+    public boolean open(Entry entry) {
+        active = entry;
+        entry.lastUsed = ++useCounter;
+        if (entry.isLoaded()) {
+            evict();
+            return true;
+        }
+        if (!entry.isLoading()) startLoading(entry);
+        return false;
+    }
+
+    // Отмена загрузки; ждущая очереди задача сразу завершится с InterruptedIOException
+    public void cancel(Entry entry) {
+        if (entry.loading != null) entry.loading.cancel();
+    }
+
+    public void cancelAll() {
+        for (Entry entry : entries) cancel(entry);
+    }
+
+    // Удаление записи, которая так и не загрузилась (например, после отмены)
+    public void remove(Entry entry) {
+        cancel(entry);
+        entry.loading = null;
+        entries.remove(entry);
+        if (active == entry) active = null;
+    }
+
+    // Сварка вершин ближе epsilon при следующих загрузках (и при повторном чтении выгруженных моделей)
+    public void setWelding(boolean enabled, float epsilon) {
+        welding = enabled;
+        weldEpsilon = epsilon;
+    }
+
+    // Таблица рёбер строится при следующих загрузках в том же фоновом потоке
+    public void setEdgeTables(boolean enabled) {
+        edgeTables = enabled;
+    }
+
+    // OBJ файлы больше bytes не читаются в кучу, а отображаются из кэша (MeshCache.readOffHeap).
+    // Такие модели только для чтения и не учитываются в бюджете: их память освобождает система
+    public void setOffHeapThreshold(long bytes) {
+        offHeapThreshold = bytes;
+    }
+
+    // Модель сохранена в файл: дальше её можно выгружать и читать из этого файла
+    public void markSaved(Entry entry, File file) {
+        entry.file = file;
+        entry.savedVersion = entry.model.getVersion();
+        entry.bytes = sizeOf(entry.model);
+        evict();
+    }
+
+    // Память под все загруженные модели
+    public long getLoadedBytes() {
+        long total = 0;
+        for (Entry entry : entries) {
+            if (entry.isLoaded()) total += bytesOf(entry);
+        }
+        return total;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public boolean isLoading() {
+        for (Entry entry : entries) {
+            if (entry.isLoading()) return true;
+        }
+        return false;
+    }
+
+    private void startLoading(Entry entry) {
+        LoadProgress progress = new LoadProgress();
+        File file = entry.file;
+        entry.loading = progress;
+        boolean weld = welding;
+        float epsilon = weldEpsilon;
+        boolean edges = edgeTables;
+        boolean offHeap = file.length() > offHeapThreshold;
+        LOADER.execute(() -> {
+            Model3D model = null;
+            VertexWelder.Report report = null;
+            IOException error = null;
+            try {
+                progress.check();
+                if (offHeap) {
+                    // Без показа по частям, сварки и нормалей заранее: всё это строится в куче
+                    model = MeshCache.readOffHeap(file, progress);
+                } else {
+                    // Запись, выбранная к началу чтения, показывается по частям
+                    if (entry == active) enablePreview(entry, progress);
+                    model = MeshCache.read(file, true, progress);
+                    if (weld) {
+                        progress.check();
+                        // Последний снимок частичной модели остаётся на экране до конца загрузки
+                        // и разделяет её массивы, поэтому после показа по частям сварка идёт в копии
+                        report = VertexWelder.weld(model, epsilon, progress.wantsPreview());
+                    }
+                    // Нормали полигонов считаются здесь же, в фоне, а не при первом кадре с затенением
+                    progress.check();
+                    model.getFaceNormals();
+                    // Таблица рёбер для пакетного каркаса — тоже здесь, чтобы первый кадр её не ждал
+                    if (edges) {
+                        progress.check();
+                        EdgeTable.prepare(model);
+                    }
+                }
+            } catch (IOException e) {
+                error = e;
+            } catch (OutOfMemoryError e) {
+                error = new IOException("Not enough memory to load " + file.getName(), e);
+            }
+            Model3D result = model;
+            VertexWelder.Report weldReport = report;
+            IOException failure = error;
+            SwingUtilities.invokeLater(() -> finishLoading(entry, progress, result, weldReport, failure));
+        });
+    }
+
+    // Пока поток Swing не забрал предыдущий снимок, новый его заменяет: в очереди событий не больше одного
+    private void enablePreview(Entry entry, LoadProgress progress) {
+        AtomicReference<Model3D> pending = new AtomicReference<>();
+        progress.setPreview(partial -> {
+            if (pending.getAndSet(partial) != null) return;
+            SwingUtilities.invokeLater(() -> {
+                Model3D latest = pending.getAndSet(null);
+                if (entry.loading == progress && entry == active) listener.preview(entry, latest);
+            });
+        }, PREVIEW_BATCH);
+    }
+
+    private void finishLoading(Entry entry, LoadProgress progress, Model3D model, VertexWelder.Report weldReport,
+                               IOException error) {
+        if (entry.loading != progress) return;
+        entry.loading = null;
+        if (error == null && progress.isCancelled()) error = new InterruptedIOException("Loading cancelled");
+        if (error != null) {
+            listener.failed(entry, error);
+            return;
+        }
+        entry.model = model;
+        entry.everLoaded = true;
+        entry.weldReport = weldReport;
+        entry.savedVersion = model.getVersion();
+        entry.bytes = sizeOf(model);
+        listener.loaded(entry);
+        evict();
+    }
+
+    // Выгрузка неактивных неизменённых моделей, пока занятая память больше бюджета
+    private void evict() {
+        long used = getLoadedBytes();
+        while (used > budget) {
+            Entry oldest = null;
+            for (Entry entry : entries) {
+                if (entry == active || !entry.isLoaded() || entry.isModified()) continue;
+                if (oldest == null || entry.lastUsed < oldest.lastUsed) oldest = entry;
+            }
+            if (oldest == null) return;
+            used -= bytesOf(oldest);
+            oldest.model = null;
+        }
+    }
+
+    // Массивы модели и её таблица рёбер: таблица строится и после загрузки, поэтому считается каждый раз
+    private static long bytesOf(Entry entry) {
+        return entry.bytes + EdgeTable.bytes(entry.model);
+    }
+
+    // Память под массивы модели с учётом запаса ёмкости; модель вне кучи её не занимает
+    private static long sizeOf(Model3D model) {
+        if (model.isOffHeap()) return 0;
+        return 4L * (model.getCoords().length + model.getFaceOffsets().length + model.getFaceIndices().length
+                + 3L * model.getFaceCount());
+    }
+}
\ No newline at end of file
@@ -2,9 +2,10 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
 // Класс для отрисовки 3D модели
 class ModelRenderer extends JPanel {
@@ -12,13 +13,61 @@ class ModelRenderer extends JPanel {
     private double rotationX = 0;
     private double rotationY = 0;
     private double scale = 100.0;
-    private Set<Integer> selectedVertices = new HashSet<>();
-    private Set<Integer> selectedPolygons = new HashSet<>();
+    private SelectionSet selectedVertices = new SelectionSet();
+    private SelectionSet selectedPolygons = new SelectionSet();
+    // Пустой выбор для кадров упрощённой версии: общий на все кадры и никогда не меняется
+    private static final SelectionSet NO_SELECTION = new SelectionSet();
     private boolean selectingVertices = true;
+    private int selectionVersion;      // Меняется при каждом изменении выбора
+    // Выбор областью: Shift + перетаскивание — прямоугольник, Ctrl или Alt + перетаскивание — лассо
+    private static final Color REGION_COLOR = new Color(0, 120, 215);
+    private static final BasicStroke REGION_STROKE = new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER,
+            10, new float[] {4, 4}, 0);
+    private Point regionStart;         // Угол прямоугольника (null, если выбор прямоугольником не идёт)
+    private Point regionEnd;
+    private Polygon lasso;             // Контур лассо в координатах панели (null, если лассо не рисуется)
+
+    // Отрисовка в потоке Swing
+    private final SceneRenderer scene = new SceneRenderer();
+    // Выбор мышью лучом через BVH модели
+    private final MeshPicker picker = new MeshPicker();
+    private final Projection pickProjection = new Projection();
+    // Замеры времени кадров и выбора (работают, пока показано наложение или идёт запись JFR)
+    private final FrameProfiler profiler = new FrameProfiler();
+    // Фоновая отрисовка (null, если выключена)
+    private BackgroundRenderer backgroundRenderer;
+    // Растеризация по плиткам с буфером глубины
+    private boolean depthBuffer = false;
+    // Отсечение граней, повёрнутых от камеры, и граней вне панели
+    private boolean cullBackFaces = false;
+    private boolean cullFrustum = false;
+
+    // Во время вращения рисуется упрощённая версия модели, полная — после паузы SETTLE_DELAY мс
+    private static final int SETTLE_DELAY = 200;
+    private boolean levelOfDetailEnabled = true;
+    private LevelOfDetail levelOfDetail;
+    private boolean interacting;
+    // Держится на время правки модели; под ним же построитель упрощённой версии снимает копию
+    private final ReentrantLock editLock = new ReentrantLock();
+    // Кадры анимации (автоматическое вращение)
+    private final FrameScheduler frameScheduler = new FrameScheduler(this);
+    // Модель ещё загружается: показывается прочитанная часть, упрощённая версия и кэши по ней не строятся
+    private boolean partial;
+    // Отрисовка пакетами и отключение сглаживания на время вращения
+    private boolean batchedDrawing;
+    private boolean adaptiveAntialiasing = true;
+    // Затенение по нормалям полигонов и контуры полигонов
+    private boolean flatShading = false;
+    private boolean drawEdges = true;
+    private final Timer settleTimer = new Timer(SETTLE_DELAY, e -> {
+        interacting = false;
+        repaint();
+    });
 
     // Метод для поворота модели вокруг оси Y
     public void rotateY(double angle) {
         rotationY += angle;
+        markInteraction();
     }
 
     // Метод для изменения масштаба модели
@@ -30,6 +79,7 @@ class ModelRenderer extends JPanel {
     public ModelRenderer() {
         setPreferredSize(new Dimension(500, 500));
         setBackground(Color.WHITE);
+        settleTimer.setRepeats(false);
 
         // Обработчик событий мыши
         MouseAdapter mouseHandler = new MouseAdapter() {
@@ -38,6 +88,24 @@ class ModelRenderer extends JPanel {
             @Override
             public void mousePressed(MouseEvent e) {
                 lastPoint = e.getPoint();
+                if (e.isShiftDown()) {
+                    regionStart = e.getPoint();
+                    regionEnd = e.getPoint();
+                } else if (e.isControlDown() || e.isAltDown()) {
+                    lasso = new Polygon();
+                    lasso.addPoint(e.getX(), e.getY());
+                }
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                if (regionStart != null || lasso != null) {
+                    selectRegion();
+                    regionStart = null;
+                    regionEnd = null;
+                    lasso = null;
+                    repaint();
+                }
             }
 
             @Override
@@ -47,73 +115,42 @@ class ModelRenderer extends JPanel {
                 // Получаем точку клика относительно центра панели
                 Point clickPoint = e.getPoint();
                 clickPoint.translate(-getWidth() / 2, -getHeight() / 2);
+                long pickStart = System.nanoTime();
+                pickProjection.update(rotationX, rotationY, scale);
 
                 if (selectingVertices) {
-                    // Поиск ближайшей вершины к точке клика
-                    int closestVertex = -1;
-                    double minDistance = 10;
-
-                    for (int i = 0; i < model.getVertices().size(); i++) {
-                        Vector3 vertex = model.getVertices().get(i);
-                        double[] projected = project(vertex);
-                        double dx = projected[0] * scale - clickPoint.x;
-                        double dy = projected[1] * scale - clickPoint.y;
-                        double distance = Math.sqrt(dx * dx + dy * dy);
-
-                        if (distance < minDistance) {
-                            minDistance = distance;
-                            closestVertex = i;
-                        }
-                    }
+                    // Поиск ближайшей на экране вершины к точке клика
+                    int closestVertex = picker.pickVertex(model, pickProjection, clickPoint.x, clickPoint.y, 10);
 
                     // Выбор или отмена выбора вершины
                     if (closestVertex != -1) {
-                        if (selectedVertices.contains(closestVertex)) {
-                            selectedVertices.remove(closestVertex);
-                        } else {
-                            selectedVertices.add(closestVertex);
-                        }
+                        selectedVertices.toggle(closestVertex);
+                        selectionVersion++;
                         repaint();
                     }
                 } else {
-                    // Выбор полигона по клику
-                    int clickedPolygon = -1;
-
-                    for (int i = 0; i < model.getPolygons().size(); i++) {
-                        Face face = model.getPolygons().get(i);
-                        int[] xPoints = new int[face.getVertexIndices().size()];
-                        int[] yPoints = new int[face.getVertexIndices().size()];
-
-                        // Проецируем вершины полигона на экран
-                        for (int j = 0; j < face.getVertexIndices().size(); j++) {
-                            Vector3 vertex = model.getVertices().get(face.getVertexIndices().get(j));
-                            double[] projected = project(vertex);
-                            xPoints[j] = (int)(projected[0] * scale) + getWidth() / 2;
-                            yPoints[j] = (int)(projected[1] * scale) + getHeight() / 2;
-                        }
-
-                        // Проверяем, попадает ли точка клика в полигон
-                        if (new Polygon(xPoints, yPoints, face.getVertexIndices().size()).contains(e.getPoint())) {
-                            clickedPolygon = i;
-                            break;
-                        }
-                    }
+                    // Выбор ближайшего к камере полигона под точкой клика
+                    int clickedPolygon = picker.pickFace(model, pickProjection, clickPoint.x, clickPoint.y);
 
                     // Выбор или отмена выбора полигона
                     if (clickedPolygon != -1) {
-                        if (selectedPolygons.contains(clickedPolygon)) {
-                            selectedPolygons.remove(clickedPolygon);
-                        } else {
-                            selectedPolygons.add(clickedPolygon);
-                        }
+                        selectedPolygons.toggle(clickedPolygon);
+                        selectionVersion++;
                         repaint();
                     }
                 }
+                if (profiler.isActive()) profiler.addPicking(System.nanoTime() - pickStart);
             }
 
             @Override
             public void mouseDragged(MouseEvent e) {
-                if (lastPoint != null) {
+                if (regionStart != null) {
+                    regionEnd = e.getPoint();
+                    repaint();
+                } else if (lasso != null) {
+                    lasso.addPoint(e.getX(), e.getY());
+                    repaint();
+                } else if (lastPoint != null) {
                     // Вращение модели при перетаскивании мыши
                     int dx = e.getX() - lastPoint.x;
                     int dy = e.getY() - lastPoint.y;
@@ -122,6 +159,7 @@ class ModelRenderer extends JPanel {
                     rotationX += dy * 0.01;
 
                     lastPoint = e.getPoint();
+                    markInteraction();
                     repaint();
                 }
             }
@@ -135,112 +173,254 @@ class ModelRenderer extends JPanel {
         addMouseWheelListener(e -> {
             scale += e.getWheelRotation() * -5.0;
             scale = Math.max(10, Math.min(500, scale));
+            markInteraction();
             repaint();
         });
     }
     // Методы установки параметров модели
     public void setModel(Model3D model) {
         this.model = model;
+        partial = false;
+        if (levelOfDetail != null) {
+            levelOfDetail.cancel();
+            levelOfDetail = null;
+        }
         repaint();
     }
 
+    // Часть модели, прочитанная к этому моменту; поворот и масштаб сохраняются между снимками
+    public void setPartialModel(Model3D model) {
+        setModel(model);
+        partial = true;
+    }
+
     public void setSelectingVertices(boolean selectingVertices) {
         this.selectingVertices = selectingVertices;
     }
 
-    public void setSelectedVertices(Set<Integer> selectedVertices) {
+    public void setSelectedVertices(SelectionSet selectedVertices) {
         this.selectedVertices = selectedVertices;
+        selectionVersion++;
         repaint();
     }
 
-    public void setSelectedPolygons(Set<Integer> selectedPolygons) {
+    public void setSelectedPolygons(SelectionSet selectedPolygons) {
         this.selectedPolygons = selectedPolygons;
+        selectionVersion++;
+        repaint();
+    }
+
+    // Включение отрисовки в фоновом потоке
+    public void setBackgroundRendering(boolean enabled) {
+        if (enabled && backgroundRenderer == null) {
+            backgroundRenderer = new BackgroundRenderer(this);
+        } else if (!enabled && backgroundRenderer != null) {
+            backgroundRenderer.shutdown();
+            backgroundRenderer = null;
+        }
+        repaint();
+    }
+
+    // Включение растеризатора с буфером глубины (правильное перекрытие граней)
+    public void setDepthBuffer(boolean depthBuffer) {
+        this.depthBuffer = depthBuffer;
+        repaint();
+    }
+
+    public void setCullBackFaces(boolean cullBackFaces) {
+        this.cullBackFaces = cullBackFaces;
+        repaint();
+    }
+
+    public void setCullFrustum(boolean cullFrustum) {
+        this.cullFrustum = cullFrustum;
+        repaint();
+    }
+
+    // Упрощённая модель во время вращения (включено по умолчанию)
+    public void setLevelOfDetail(boolean enabled) {
+        levelOfDetailEnabled = enabled;
+        if (!enabled && levelOfDetail != null) {
+            levelOfDetail.cancel();
+            levelOfDetail = null;
+        }
+        repaint();
+    }
+
+    // Полигоны и вершины пакетами по стилю вместо отдельных вызовов. Выключено по умолчанию: внутри пакета
+    // перекрытия полупрозрачных заливок не накладываются, а выбранные полигоны рисуются после остальных
+    public void setBatchedDrawing(boolean batchedDrawing) {
+        this.batchedDrawing = batchedDrawing;
+        repaint();
+    }
+
+    public boolean isBatchedDrawing() {
+        return batchedDrawing;
+    }
+
+    // Сглаживание только в покое; во время вращения кадры рисуются без него (включено по умолчанию)
+    public void setAdaptiveAntialiasing(boolean adaptiveAntialiasing) {
+        this.adaptiveAntialiasing = adaptiveAntialiasing;
         repaint();
     }
 
+    // Непрозрачная заливка с яркостью по нормали полигона: форма видна и без контуров.
+    // Модели вне кучи (только для чтения) всегда рисуются без затенения
+    public void setFlatShading(boolean flatShading) {
+        this.flatShading = flatShading;
+        repaint();
+    }
+
+    // Контуры полигонов (включено по умолчанию); на больших моделях это самая дорогая часть кадра
+    public void setDrawEdges(boolean drawEdges) {
+        this.drawEdges = drawEdges;
+        repaint();
+    }
+
+    // Анимация с шагом по прошедшему времени; кадр запрашивается, когда нарисован предыдущий
+    public void startAnimation(FrameScheduler.Animation animation) {
+        frameScheduler.start(animation);
+    }
+
+    public void stopAnimation() {
+        frameScheduler.stop();
+    }
+
+    public boolean isAnimating() {
+        return frameScheduler.isRunning();
+    }
+
+    // Таблица времени кадра по фазам поверх модели
+    public void setProfilerOverlay(boolean enabled) {
+        profiler.setOverlay(enabled);
+        repaint();
+    }
+
+    // Выгрузка замеров последних кадров в CSV
+    public void exportFrameMetrics(File file) throws IOException {
+        profiler.exportCsv(file);
+    }
+
+    // Модель двигается: до паузы рисуется упрощённая версия
+    private void markInteraction() {
+        interacting = true;
+        settleTimer.restart();
+    }
+
+    // Упрощённая версия текущей модели или null, если она не нужна или ещё не готова.
+    // Построение запускается при первом вращении и заново после изменения модели
+    private Model3D coarseModel() {
+        if (partial || !levelOfDetailEnabled || !LevelOfDetail.isNeeded(model)) return null;
+        if (levelOfDetail == null || !levelOfDetail.isFor(model)) {
+            if (levelOfDetail != null) levelOfDetail.cancel();
+            levelOfDetail = new LevelOfDetail(model, editLock, () -> SwingUtilities.invokeLater(this::repaint));
+        }
+        return levelOfDetail.getCoarsest();
+    }
+
+    // Правка модели в потоке Swing (change возвращает, была ли правка). Фоновая отрисовка
+    // читает массивы модели без копирования, поэтому на время правки её кадры останавливаются
+    public boolean editModel(BooleanSupplier change) {
+        editLock.lock();
+        try {
+            return backgroundRenderer != null ? backgroundRenderer.edit(change) : change.getAsBoolean();
+        } finally {
+            editLock.unlock();
+        }
+    }
+
     // Отрисовка модели
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
+        frameScheduler.framePainted();
         if (model == null) return;
 
-        // Настройка графического контекста
-        Graphics2D g2d = (Graphics2D) g;
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.translate(getWidth() / 2, getHeight() / 2);
-
-        // Отрисовка полигонов
-        for (int i = 0; i < model.getPolygons().size(); i++) {
-            Face face = model.getPolygons().get(i);
-            List<Integer> indices = face.getVertexIndices();
-            if (indices.size() < 3) continue;
-
-            // Преобразование 3D координат в 2D
-            int[] xPoints = new int[indices.size()];
-            int[] yPoints = new int[indices.size()];
-
-            for (int j = 0; j < indices.size(); j++) {
-                Vector3 vertex = model.getVertices().get(indices.get(j));
-                double[] projectedPoint = project(vertex);
-                xPoints[j] = (int)(projectedPoint[0] * scale);
-                yPoints[j] = (int)(projectedPoint[1] * scale);
-            }
-
-            // Заливка полигона
-            if (selectedPolygons.contains(i)) {
-                g2d.setColor(new Color(255, 0, 0, 128)); // Полупрозрачный красный для выбранных
-            } else {
-                g2d.setColor(new Color(200, 200, 255, 128)); // Полупрозрачный синий для обычных
-            }
-            g2d.fillPolygon(xPoints, yPoints, indices.size());
-
-            // Отрисовка контура полигона
-            if (selectedPolygons.contains(i)) {
-                g2d.setColor(Color.RED);
-                g2d.setStroke(new BasicStroke(2));
-            } else {
-                g2d.setColor(Color.BLUE);
-                g2d.setStroke(new BasicStroke(1));
-            }
-            g2d.drawPolygon(xPoints, yPoints, indices.size());
+        if (backgroundRenderer != null) {
+            // Кадр рисуется в фоне, здесь только вывод последнего готового
+            backgroundRenderer.request(captureView());
+            backgroundRenderer.drawLatest(g);
+        } else {
+            scene.render((Graphics2D) g, captureView());
         }
-
-        // Отрисовка вершин
-        g2d.setStroke(new BasicStroke(1));
-        for (int i = 0; i < model.getVertices().size(); i++) {
-            Vector3 vertex = model.getVertices().get(i);
-            double[] projectedPoint = project(vertex);
-            int x = (int)(projectedPoint[0] * scale);
-            int y = (int)(projectedPoint[1] * scale);
-
-            // Выделение выбранных вершин
-            if (selectedVertices.contains(i)) {
-                g2d.setColor(Color.RED);
-                g2d.fillOval(x - 4, y - 4, 8, 8);
-            } else {
-                g2d.setColor(Color.BLACK);
-                g2d.fillOval(x - 2, y - 2, 4, 4);
-            }
+        drawRegion((Graphics2D) g);
+        if (profiler.isOverlay()) {
+            profiler.drawOverlay((Graphics2D) g, getWidth());
         }
     }
-    // Проекция 3D точки на 2D плоскость
-    private double[] project(Vector3 vertex) {
-        double x = vertex.x;
-        double y = vertex.y;
-        double z = vertex.z;
 
-        // Применяем поворот вокруг оси Y
-        double newX = x * Math.cos(rotationY) - z * Math.sin(rotationY);
-        double newZ = x * Math.sin(rotationY) + z * Math.cos(rotationY);
+    // Контур выбираемой области поверх кадра
+    private void drawRegion(Graphics2D g2d) {
+        if (regionStart == null && lasso == null) return;
+        g2d.setColor(REGION_COLOR);
+        g2d.setStroke(REGION_STROKE);
+        if (regionStart != null) {
+            g2d.drawRect(Math.min(regionStart.x, regionEnd.x), Math.min(regionStart.y, regionEnd.y),
+                    Math.abs(regionEnd.x - regionStart.x), Math.abs(regionEnd.y - regionStart.y));
+        } else {
+            g2d.drawPolygon(lasso);
+        }
+    }
 
-        // Применяем поворот вокруг оси X
-        double finalY = y * Math.cos(rotationX) - newZ * Math.sin(rotationX);
-        double finalZ = y * Math.sin(rotationX) + newZ * Math.cos(rotationX);
+    // Добавление к выбору всех вершин или полигонов внутри прямоугольника или лассо
+    private void selectRegion() {
+        if (model == null) return;
+        int centerX = getWidth() / 2, centerY = getHeight() / 2;
+        RegionSelector region;
+        if (regionStart != null) {
+            // Щелчок без перетаскивания обрабатывается как обычный выбор
+            if (regionStart.distance(regionEnd) < 3) return;
+            region = RegionSelector.rectangle(regionStart.x - centerX, regionStart.y - centerY,
+                    regionEnd.x - centerX, regionEnd.y - centerY);
+        } else {
+            if (lasso.npoints < 3) return;
+            int[] xs = new int[lasso.npoints];
+            int[] ys = new int[lasso.npoints];
+            for (int i = 0; i < lasso.npoints; i++) {
+                xs[i] = lasso.xpoints[i] - centerX;
+                ys[i] = lasso.ypoints[i] - centerY;
+            }
+            region = RegionSelector.lasso(xs, ys, lasso.npoints);
+        }
 
-        // Применяем перспективную проекцию
-        double depth = 5.0;
-        double scale = depth / (depth + finalZ);
+        long pickStart = System.nanoTime();
+        pickProjection.update(rotationX, rotationY, scale);
+        pickProjection.project(model);
+        if (selectingVertices) {
+            selectedVertices.addAll(region.selectVertices(pickProjection));
+        } else {
+            selectedPolygons.addAll(region.selectFaces(model, pickProjection));
+        }
+        selectionVersion++;
+        if (profiler.isActive()) profiler.addPicking(System.nanoTime() - pickStart);
+    }
 
-        return new double[] { newX * scale, finalY * scale };
+    // Текущие параметры кадра
+    private ViewState captureView() {
+        ViewState view = new ViewState();
+        Model3D coarse = interacting ? coarseModel() : null;
+        view.model = coarse != null ? coarse : model;
+        view.modelVersion = view.model.getVersion();
+        view.rotationX = rotationX;
+        view.rotationY = rotationY;
+        view.scale = scale;
+        view.width = getWidth();
+        view.height = getHeight();
+        view.background = getBackground();
+        // Номера выбранных элементов относятся к полной модели, на упрощённой выбор не показывается
+        view.selectedVertices = coarse != null ? NO_SELECTION : selectedVertices;
+        view.selectedPolygons = coarse != null ? NO_SELECTION : selectedPolygons;
+        view.selectionVersion = selectionVersion;
+        view.depthBuffer = depthBuffer;
+        view.cullBackFaces = cullBackFaces;
+        view.cullFrustum = cullFrustum;
+        view.partial = partial;
+        view.batchedDrawing = batchedDrawing;
+        view.antialiasing = !(adaptiveAntialiasing && interacting);
+        // Нормалям модели вне кучи понадобился бы массив в куче на все полигоны: она рисуется без затенения
+        view.flatShading = flatShading && !view.model.isOffHeap();
+        view.drawEdges = drawEdges;
+        view.profiler = profiler.isActive() ? profiler : null;
+        return view;
     }
 }
\ No newline at end of file
@@ -2,13 +2,23 @@ import javax.swing.*;
 import javax.swing.Timer;
 import java.awt.*;
 import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.*;
-import java.util.List;
 
 // Основной класс приложения, наследуется от JFrame для создания окна
 public class ModelViewer extends JFrame {
-    // Список всех загруженных 3D моделей
-    private List<Model3D> models;
+    // Память под загруженные модели (по умолчанию половина кучи, задаётся -Dmodelviewer.memoryBudget=байты)
+    private static final long MEMORY_BUDGET = Long.getLong("modelviewer.memoryBudget", Runtime.getRuntime().maxMemory() / 2);
+    // Расстояние, ближе которого вершины свариваются при импорте (задаётся -Dmodelviewer.weldEpsilon=число)
+    private static final float WELD_EPSILON = Float.parseFloat(System.getProperty("modelviewer.weldEpsilon", "1e-6"));
+    // OBJ файлы больше порога открываются только для чтения из отображённого кэша вне кучи
+    // (по умолчанию равен бюджету памяти, задаётся -Dmodelviewer.offHeapThreshold=байты)
+    private static final long OFF_HEAP_THRESHOLD = Long.getLong("modelviewer.offHeapThreshold", MEMORY_BUDGET);
+    // Список всех открытых 3D моделей (загружаются в фоне, неактивные могут выгружаться)
+    private ModelLibrary library;
+    // Выбранная запись списка и её модель (null, пока модель загружается)
+    private ModelLibrary.Entry activeEntry;
     // Текущая активная модель для редактирования
     private Model3D activeModel;
     // Компонент для отрисовки 3D модели
@@ -16,23 +26,50 @@ public class ModelViewer extends JFrame {
     // Панель для размещения компонентов интерфейса
     private JPanel modelPanel;
     // Список моделей в интерфейсе
-    private JList<String> modelList;
+    private JList<ModelLibrary.Entry> modelList;
+    private final DefaultListModel<ModelLibrary.Entry> listModel = new DefaultListModel<>();
+    // Строка состояния: сведения о модели, ход загрузки и её отмена
+    private JLabel statusLabel;
+    private JProgressBar loadProgress;
+    private JButton cancelLoadButton;
+    // Обновление хода загрузки, пока в фоне читаются файлы
+    private final Timer progressTimer = new Timer(200, e -> updateStatus());
     // Флаг для отслеживания текущей темы (светлая/темная)
     private boolean isDarkTheme = false;
     // Множество выбранных вершин модели
-    private Set<Integer> selectedVertices = new HashSet<>();
+    private SelectionSet selectedVertices = new SelectionSet();
     // Множество выбранных полигонов модели
-    private Set<Integer> selectedPolygons = new HashSet<>();
+    private SelectionSet selectedPolygons = new SelectionSet();
     // Флаг режима выбора (вершины/полигоны)
     private boolean selectingVertices = true;
-    // Таймер для автоматического вращения модели
-    private Timer rotationTimer;
-    // Флаг вращения модели
-    private boolean isRotating = false;
+    // Скорость автоматического вращения модели, радиан в секунду
+    private static final double ROTATION_SPEED = 0.4;
+    // Память под историю правок каждой модели (по умолчанию 256 МБ, задаётся -Dmodelviewer.undoBudget=байты)
+    private static final long UNDO_BUDGET = Long.getLong("modelviewer.undoBudget", 256L << 20);
+    // История правок для отмены и повтора по моделям
+    // (история не держит выгруженную модель в памяти)
+    private final Map<Model3D, EditHistory> histories = new WeakHashMap<>();
 
     // Конструктор класса
     public ModelViewer() {
-        models = new ArrayList<>();
+        library = new ModelLibrary(MEMORY_BUDGET, new ModelLibrary.Listener() {
+            @Override
+            public void preview(ModelLibrary.Entry entry, Model3D partial) {
+                // Прочитанная часть модели: её уже можно вращать, правки доступны после загрузки
+                if (entry == activeEntry && activeModel == null) renderer.setPartialModel(partial);
+            }
+
+            @Override
+            public void loaded(ModelLibrary.Entry entry) {
+                modelLoaded(entry);
+            }
+
+            @Override
+            public void failed(ModelLibrary.Entry entry, IOException error) {
+                modelFailed(entry, error);
+            }
+        });
+        library.setOffHeapThreshold(OFF_HEAP_THRESHOLD);
         setupUI();
     }
 
@@ -57,7 +94,10 @@ public class ModelViewer extends JFrame {
         renderer = new ModelRenderer();
         add(renderer, BorderLayout.CENTER);
 
+        add(createStatusBar(), BorderLayout.SOUTH);
+
         applyTheme(isDarkTheme);
+        updateStatus();
     }
 
     // Создание панели меню
@@ -71,20 +111,85 @@ public class ModelViewer extends JFrame {
         JMenuItem saveItem = new JMenuItem("Save Model");
         saveItem.addActionListener(e -> saveModel());
 
+        // Слияние совпадающих вершин и удаление повторяющихся полигонов после чтения файла
+        JCheckBoxMenuItem weldItem = new JCheckBoxMenuItem("Weld Vertices on Import");
+        weldItem.addActionListener(e -> library.setWelding(weldItem.isSelected(), WELD_EPSILON));
+
         fileMenu.add(loadItem);
         fileMenu.add(saveItem);
+        fileMenu.addSeparator();
+        fileMenu.add(weldItem);
 
         JMenu editMenu = new JMenu("Edit");
         JMenuItem deleteItem = new JMenuItem("Delete Selected");
         deleteItem.addActionListener(e -> deleteSelectedParts());
 
+        // Отмена и повтор удаления
+        JMenuItem undoItem = new JMenuItem("Undo");
+        undoItem.setAccelerator(KeyStroke.getKeyStroke("control Z"));
+        undoItem.addActionListener(e -> undoEdit());
+        JMenuItem redoItem = new JMenuItem("Redo");
+        redoItem.setAccelerator(KeyStroke.getKeyStroke("control Y"));
+        redoItem.addActionListener(e -> redoEdit());
+
+        editMenu.add(undoItem);
+        editMenu.add(redoItem);
+        editMenu.addSeparator();
         editMenu.add(deleteItem);
 
         JMenu viewMenu = new JMenu("View");
         JMenuItem themeItem = new JMenuItem("Toggle Theme");
         themeItem.addActionListener(e -> toggleTheme());
 
+        // Отрисовка в фоновом потоке, чтобы интерфейс не замирал на больших моделях
+        JCheckBoxMenuItem backgroundItem = new JCheckBoxMenuItem("Background Rendering");
+        backgroundItem.addActionListener(e -> renderer.setBackgroundRendering(backgroundItem.isSelected()));
+
+        // Растеризация по плиткам в несколько потоков с буфером глубины
+        JCheckBoxMenuItem depthBufferItem = new JCheckBoxMenuItem("Z-Buffer Rendering");
+        depthBufferItem.addActionListener(e -> renderer.setDepthBuffer(depthBufferItem.isSelected()));
+
+        // Отсечение невидимых граней перед отрисовкой
+        JCheckBoxMenuItem backFaceItem = new JCheckBoxMenuItem("Back-face Culling");
+        backFaceItem.addActionListener(e -> renderer.setCullBackFaces(backFaceItem.isSelected()));
+        JCheckBoxMenuItem frustumItem = new JCheckBoxMenuItem("Frustum Culling");
+        frustumItem.addActionListener(e -> renderer.setCullFrustum(frustumItem.isSelected()));
+
+        // Затенение по нормалям полигонов; без контуров большие модели рисуются намного быстрее
+        JCheckBoxMenuItem shadingItem = new JCheckBoxMenuItem("Flat Shading");
+        shadingItem.addActionListener(e -> renderer.setFlatShading(shadingItem.isSelected()));
+        JCheckBoxMenuItem edgesItem = new JCheckBoxMenuItem("Draw Edges", true);
+        edgesItem.addActionListener(e -> renderer.setDrawEdges(edgesItem.isSelected()));
+
+        // Упрощённая модель во время вращения
+        JCheckBoxMenuItem lodItem = new JCheckBoxMenuItem("Level of Detail While Rotating", true);
+        lodItem.addActionListener(e -> renderer.setLevelOfDetail(lodItem.isSelected()));
+        // Пакетная отрисовка и сглаживание только в покое
+        JCheckBoxMenuItem batchedItem = new JCheckBoxMenuItem("Batched Drawing", false);
+        batchedItem.addActionListener(e -> setBatchedDrawing(batchedItem.isSelected()));
+        JCheckBoxMenuItem antialiasingItem = new JCheckBoxMenuItem("Antialiasing Off While Rotating", true);
+        antialiasingItem.addActionListener(e -> renderer.setAdaptiveAntialiasing(antialiasingItem.isSelected()));
+
+        // Время кадра по фазам поверх модели и выгрузка замеров
+        JCheckBoxMenuItem profilerItem = new JCheckBoxMenuItem("Performance Overlay");
+        profilerItem.addActionListener(e -> renderer.setProfilerOverlay(profilerItem.isSelected()));
+        JMenuItem exportMetricsItem = new JMenuItem("Export Frame Metrics...");
+        exportMetricsItem.addActionListener(e -> exportFrameMetrics());
+
         viewMenu.add(themeItem);
+        viewMenu.add(backgroundItem);
+        viewMenu.add(depthBufferItem);
+        viewMenu.add(shadingItem);
+        viewMenu.add(edgesItem);
+        viewMenu.addSeparator();
+        viewMenu.add(backFaceItem);
+        viewMenu.add(frustumItem);
+        viewMenu.add(lodItem);
+        viewMenu.add(batchedItem);
+        viewMenu.add(antialiasingItem);
+        viewMenu.addSeparator();
+        viewMenu.add(profilerItem);
+        viewMenu.add(exportMetricsItem);
 
         menuBar.add(fileMenu);
         menuBar.add(editMenu);
@@ -138,16 +243,15 @@ public class ModelViewer extends JFrame {
         panel.setBorder(BorderFactory.createTitledBorder("Models"));
 
         // Создание модели списка для хранения названий моделей
-        DefaultListModel<String> listModel = new DefaultListModel<>();
         modelList = new JList<>(listModel);
         modelList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 
         // Это обработчик выбора модели из мписка
         modelList.addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
-                int index = modelList.getSelectedIndex();
-                if (index >= 0 && index < models.size()) {
-                    setActiveModel(models.get(index));
+                ModelLibrary.Entry entry = modelList.getSelectedValue();
+                if (entry != null && entry != activeEntry) {
+                    openEntry(entry);
                 }
             }
         });
@@ -156,20 +260,67 @@ public class ModelViewer extends JFrame {
         return panel;
     }
 
-    // Загрузка 3D модели из файла
+    // Строка состояния внизу окна
+    private JPanel createStatusBar() {
+        JPanel panel = new JPanel(new BorderLayout(8, 0));
+        panel.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        statusLabel = new JLabel(" ");
+        loadProgress = new JProgressBar(0, 100);
+        loadProgress.setStringPainted(true);
+        cancelLoadButton = new JButton("Cancel");
+        cancelLoadButton.addActionListener(e -> library.cancelAll());
+
+        JPanel loading = new JPanel(new BorderLayout(4, 0));
+        loading.add(loadProgress, BorderLayout.CENTER);
+        loading.add(cancelLoadButton, BorderLayout.EAST);
+        loadProgress.setVisible(false);
+        cancelLoadButton.setVisible(false);
+
+        panel.add(statusLabel, BorderLayout.CENTER);
+        panel.add(loading, BorderLayout.EAST);
+        return panel;
+    }
+
+    // Загрузка 3D моделей из файлов (чтение идёт в фоне, окно не замирает)
     private void loadModel() {
-        try {
-            JFileChooser fileChooser = new JFileChooser();
-            if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
-                File file = fileChooser.getSelectedFile();
-                // Чтение модели из файла
-                Model3D model = ObjReader.read(file);
-                models.add(model);
-                setActiveModel(model);
-                updateModelList();
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setMultiSelectionEnabled(true);
+        if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            ModelLibrary.Entry last = null;
+            for (File file : fileChooser.getSelectedFiles()) {
+                last = library.add(file);
+                listModel.addElement(last);
             }
-        } catch (Exception e) {
-            showError("Error loading model", e.getMessage());
+            if (last != null) modelList.setSelectedValue(last, true);
+            updateStatus();
+        }
+    }
+
+    // Выбор модели из списка; выгруженная модель читается заново
+    private void openEntry(ModelLibrary.Entry entry) {
+        activeEntry = entry;
+        setActiveModel(library.open(entry) ? entry.getModel() : null);
+        updateStatus();
+    }
+
+    private void modelLoaded(ModelLibrary.Entry entry) {
+        if (entry == activeEntry) {
+            setActiveModel(entry.getModel());
+        }
+        updateStatus();
+    }
+
+    // Ошибка или отмена загрузки: запись без модели удаляется, выгруженная остаётся в списке
+    private void modelFailed(ModelLibrary.Entry entry, IOException error) {
+        if (entry == activeEntry) setActiveModel(null);
+        if (!entry.wasEverLoaded()) {
+            library.remove(entry);
+            listModel.removeElement(entry);
+            if (entry == activeEntry) activeEntry = null;
+        }
+        updateStatus();
+        if (!(error instanceof InterruptedIOException)) {
+            showError("Error loading model", entry.getFile().getName() + ": " + error.getMessage());
         }
     }
 
@@ -186,79 +337,115 @@ public class ModelViewer extends JFrame {
                 File file = fileChooser.getSelectedFile();
                 // Записывает модель в файл
                 ObjWriter.write(activeModel, file);
+                // Сохранённую модель можно выгружать: при следующем выборе она прочитается из этого файла
+                library.markSaved(activeEntry, file);
+                updateStatus();
             }
         } catch (Exception e) {
             showError("Error saving model", e.getMessage());
         }
     }
 
+    // Сохранение замеров времени кадров в CSV
+    private void exportFrameMetrics() {
+        try {
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setSelectedFile(new File("frames.csv"));
+            if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+                renderer.exportFrameMetrics(fileChooser.getSelectedFile());
+            }
+        } catch (Exception e) {
+            showError("Error exporting frame metrics", e.getMessage());
+        }
+    }
+
     // Удаление выбранных элементов модели (вершин или полигонов)
     private void deleteSelectedParts() {
         if (activeModel == null) {
             showError("Error", "No active model selected");
             return;
         }
+        if (activeModel.isOffHeap()) {
+            showError("Error", "Model is too large to edit and is opened read-only");
+            return;
+        }
 
-        // Удаление выбранных вершин
-        if (!selectedVertices.isEmpty()) {
-            List<Vector3> newVertices = new ArrayList<>();
-            Map<Integer, Integer> oldToNewIndices = new HashMap<>();
+        // Удаление выбранных вершин прямо в массивах модели с записью в историю правок
+        EditHistory history = historyOf(activeModel);
+        // Оба удаления — одно действие и отменяются вместе
+        renderer.editModel(() -> {
+            history.beginGroup();
+            try {
+                if (!selectedVertices.isEmpty()) {
+                    history.deleteVertices(activeModel, selectedVertices.toBitSet());
+                }
 
-            // Новый список вершин без удаленных
-            for (int i = 0; i < activeModel.getVertices().size(); i++) {
-                if (!selectedVertices.contains(i)) {
-                    oldToNewIndices.put(i, newVertices.size());
-                    newVertices.add(activeModel.getVertices().get(i));
+                // Удаление выбранных полигонов (номера относятся к списку после удаления вершин)
+                if (!selectedPolygons.isEmpty()) {
+                    history.deletePolygons(activeModel, selectedPolygons.toBitSet());
                 }
+            } finally {
+                history.endGroup();
             }
+            return true;
+        });
+        prepareEdges();
 
-            // Обновляет индексы в полигонах
-            List<Face> newPolygons = new ArrayList<>();
-            for (Face face : activeModel.getPolygons()) {
-                List<Integer> newIndices = new ArrayList<>();
-                boolean faceValid = true;
-
-                for (Integer oldIndex : face.getVertexIndices()) {
-                    if (oldToNewIndices.containsKey(oldIndex)) {
-                        newIndices.add(oldToNewIndices.get(oldIndex));
-                    } else {
-                        faceValid = false;
-                        break;
-                    }
-                }
+        // Очищаем выбранные элементы и обновляет отображение
+        selectedVertices.clear();
+        selectedPolygons.clear();
+        renderer.setSelectedVertices(selectedVertices);
+        renderer.setSelectedPolygons(selectedPolygons);
+        renderer.repaint();
+        updateStatus();
+    }
+    // Отмена последней правки активной модели
+    private void undoEdit() {
+        if (activeModel == null || !renderer.editModel(() -> historyOf(activeModel).undo(activeModel))) return;
+        prepareEdges();
+        clearSelection();
+    }
 
-                if (faceValid && newIndices.size() >= 3) {
-                    Face newFace = new Face();
-                    newFace.getVertexIndices().addAll(newIndices);
-                    newPolygons.add(newFace);
-                }
-            }
+    // Повтор отменённой правки активной модели
+    private void redoEdit() {
+        if (activeModel == null || !renderer.editModel(() -> historyOf(activeModel).redo(activeModel))) return;
+        prepareEdges();
+        clearSelection();
+    }
 
-            // Обновляет модель
-            activeModel.getVertices().clear();
-            activeModel.getVertices().addAll(newVertices);
-            activeModel.getPolygons().clear();
-            activeModel.getPolygons().addAll(newPolygons);
+    // Таблица рёбер нужна только пакетной отрисовке: без неё таблицы не строятся, а готовые освобождаются
+    private void setBatchedDrawing(boolean enabled) {
+        renderer.setBatchedDrawing(enabled);
+        library.setEdgeTables(enabled);
+        if (enabled) {
+            prepareEdges();
+        } else {
+            EdgeTable.clear();
         }
+        updateStatus();
+    }
 
-        // Удаление выбранных полигонов
-        if (!selectedPolygons.isEmpty()) {
-            List<Face> newPolygons = new ArrayList<>();
-            for (int i = 0; i < activeModel.getPolygons().size(); i++) {
-                if (!selectedPolygons.contains(i)) {
-                    newPolygons.add(activeModel.getPolygons().get(i));
-                }
-            }
-            activeModel.getPolygons().clear();
-            activeModel.getPolygons().addAll(newPolygons);
-        }
+    // Таблица рёбер активной модели строится в фоне; пока её нет, каркас рисуется по полигонам
+    private void prepareEdges() {
+        if (activeModel == null || activeModel.isOffHeap() || !renderer.isBatchedDrawing()) return;
+        EdgeTable.prepareAsync(activeModel, () -> SwingUtilities.invokeLater(() -> {
+            renderer.repaint();
+            updateStatus();
+        }));
+    }
 
-        // Очищаем выбранные элементы и обновляет отображение
+    private EditHistory historyOf(Model3D model) {
+        return histories.computeIfAbsent(model, m -> new EditHistory(UNDO_BUDGET));
+    }
+
+    // Номера элементов после правки указывают на другие вершины и полигоны, поэтому выбор сбрасывается
+    private void clearSelection() {
         selectedVertices.clear();
         selectedPolygons.clear();
         renderer.setSelectedVertices(selectedVertices);
         renderer.setSelectedPolygons(selectedPolygons);
         renderer.repaint();
+        updateStatus();
     }
     // Тема интерфейса
     private void toggleTheme() {
@@ -284,13 +471,37 @@ public class ModelViewer extends JFrame {
         JOptionPane.showMessageDialog(this, message, title, JOptionPane.ERROR_MESSAGE);
     }
 
-    // Обновление списка моделей в интерфейсе
-    private void updateModelList() {
-        DefaultListModel<String> listModel = new DefaultListModel<>();
-        for (int i = 0; i < models.size(); i++) {
-            listModel.addElement("Model " + (i + 1));
+    // Строка состояния, ход загрузки и подписи списка (состояние записей меняется без событий списка)
+    private void updateStatus() {
+        StringBuilder text = new StringBuilder();
+        if (activeModel != null) {
+            text.append(activeEntry.getFile().getName()).append(": ")
+                    .append(activeModel.getVertexCount()).append(" vertices, ")
+                    .append(activeModel.getFaceCount()).append(" faces");
+            if (activeEntry.getWeldReport() != null) text.append(" (").append(activeEntry.getWeldReport()).append(")");
+        } else if (activeEntry != null) {
+            text.append(activeEntry.getFile().getName()).append(": loading");
+        }
+        if (text.length() > 0) text.append("  |  ");
+        text.append("Models in memory: ").append(library.getLoadedBytes() >> 20).append(" of ")
+                .append(library.getBudget() >> 20).append(" MB");
+        statusLabel.setText(text.toString());
+
+        // Полоса показывает загрузку выбранной модели, а если она уже в памяти — первую из идущих
+        ModelLibrary.Entry loading = activeEntry != null && activeEntry.isLoading() ? activeEntry : null;
+        for (ModelLibrary.Entry entry : library.getEntries()) {
+            if (loading == null && entry.isLoading()) loading = entry;
+        }
+        loadProgress.setVisible(loading != null);
+        cancelLoadButton.setVisible(loading != null);
+        if (loading != null) {
+            loadProgress.setValue((int) Math.round(loading.getProgress() * 100));
+            loadProgress.setString(loading.getFile().getName() + " " + loadProgress.getValue() + "%");
+            if (!progressTimer.isRunning()) progressTimer.start();
+        } else {
+            progressTimer.stop();
         }
-        modelList.setModel(listModel);
+        modelList.repaint();
     }
 
     // Установка активной модели
@@ -301,20 +512,16 @@ public class ModelViewer extends JFrame {
         selectedPolygons.clear();
         renderer.setSelectedVertices(selectedVertices);
         renderer.setSelectedPolygons(selectedPolygons);
+        prepareEdges();
     }
 
     // Включение или выключение автоматического вращения моделт
     private void rotateActiveModel() {
-        if (rotationTimer != null && rotationTimer.isRunning()) {
-            rotationTimer.stop();
-            isRotating = false;
+        // Угол считается по прошедшему времени, кадры идут не чаще обновления экрана
+        if (renderer.isAnimating()) {
+            renderer.stopAnimation();
         } else {
-            isRotating = true;
-            rotationTimer = new Timer(50, e -> {
-                renderer.rotateY(0.02);
-                renderer.repaint();
-            });
-            rotationTimer.start();
+            renderer.startAnimation(seconds -> renderer.rotateY(ROTATION_SPEED * seconds));
         }
     }
 
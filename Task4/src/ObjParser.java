@@ -0,0 +1,239 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Побайтовый разбор строк OBJ файла без создания промежуточных строк.
+// Вершины и полигоны записываются сразу в примитивные массивы модели
+class ObjParser {
+    // Точные степени десяти, представимые в double
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final Model3D model;
+    private final boolean chunk;        // Разбор части файла: вершины до начала части неизвестны
+    private ByteBuffer data;
+    private int[] face = new int[16];   // Буфер индексов текущего полигона
+    private int[] relative = new int[16];  // Позиции индексов, заданных относительно (для склейки частей)
+    private int relativeCount;
+    private int tokenStart;             // Границы последнего найденного токена
+    private int tokenEnd;
+
+    public ObjParser(Model3D model) {
+        this(model, false);
+    }
+
+    // В режиме части файла отрицательные индексы считаются от локальных вершин,
+    // а их позиции запоминаются, чтобы при склейке прибавить число вершин предыдущих частей
+    public ObjParser(Model3D model, boolean chunk) {
+        this.model = model;
+        this.chunk = chunk;
+    }
+
+    public Model3D getModel() { return model; }
+    public int[] getRelativePositions() { return relative; }
+    public int getRelativeCount() { return relativeCount; }
+
+    // Разбор диапазона [from, to), содержащего только целые строки
+    public void parse(ByteBuffer data, int from, int to) {
+        this.data = data;
+        int pos = from;
+        while (pos < to) {
+            int lineEnd = pos;
+            while (lineEnd < to && !isLineEnd(data.get(lineEnd))) lineEnd++;
+            parseLine(pos, lineEnd);
+            pos = lineEnd + 1;
+        }
+        this.data = null;
+    }
+
+    // Комментарии и неизвестные записи пропускаются: их первый токен не равен "v" или "f"
+    private void parseLine(int pos, int end) {
+        if (!nextToken(pos, end)) return;
+        if (tokenEnd - tokenStart != 1) return;
+
+        // Обработка различных типов данных OBJ файла
+        switch (data.get(tokenStart)) {
+            case 'v':  // Вершина
+                parseVertex(tokenEnd, end);
+                break;
+            case 'f':  // Грань (полигон)
+                parseFace(tokenEnd, end);
+                break;
+        }
+    }
+
+    private void parseVertex(int pos, int end) {
+        // Как и раньше, строка учитывается только при наличии трёх координат
+        int xStart, xEnd, yStart, yEnd;
+        if (!nextToken(pos, end)) return;
+        xStart = tokenStart;
+        xEnd = tokenEnd;
+        if (!nextToken(xEnd, end)) return;
+        yStart = tokenStart;
+        yEnd = tokenEnd;
+        if (!nextToken(yEnd, end)) return;
+
+        float x = parseFloat(xStart, xEnd);
+        float y = parseFloat(yStart, yEnd);
+        float z = parseFloat(tokenStart, tokenEnd);
+        model.addVertex(x, y, z);
+    }
+
+    private void parseFace(int pos, int end) {
+        int count = 0;
+        while (nextToken(pos, end)) {
+            pos = tokenEnd;
+            if (count == face.length) {
+                face = Arrays.copyOf(face, count * 2);
+            }
+            // Берётся только индекс вершины (до первого '/')
+            int indexEnd = tokenStart;
+            while (indexEnd < tokenEnd && data.get(indexEnd) != '/') indexEnd++;
+            int index = parseInt(tokenStart, indexEnd);
+            if (index < 0 && chunk) {
+                markRelative(model.getIndexCount() + count);
+            }
+            face[count++] = resolveIndex(index);
+        }
+        // Полигоны меньше чем из трёх вершин пропускаются
+        if (count >= 3) {
+            model.addFace(face, 0, count);
+        } else {
+            // Пометки отброшенного полигона больше не нужны
+            while (relativeCount > 0 && relative[relativeCount - 1] >= model.getIndexCount()) relativeCount--;
+        }
+    }
+
+    private void markRelative(int position) {
+        if (relativeCount == relative.length) {
+            relative = Arrays.copyOf(relative, relativeCount * 2);
+        }
+        relative[relativeCount++] = position;
+    }
+
+    // Перевод индекса OBJ (с единицы, отрицательные — относительно последней вершины) в индекс массива
+    private int resolveIndex(int index) {
+        return index < 0 ? model.getVertexCount() + index : index - 1;
+    }
+
+    // Поиск следующего токена в [pos, end); результат в tokenStart/tokenEnd
+    private boolean nextToken(int pos, int end) {
+        while (pos < end && isSpace(data.get(pos))) pos++;
+        if (pos >= end) return false;
+        int start = pos;
+        while (pos < end && !isSpace(data.get(pos))) pos++;
+        tokenStart = start;
+        tokenEnd = pos;
+        return true;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || (b >= '\t' && b <= '\r');
+    }
+
+    private static boolean isLineEnd(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    // Разбор целого числа; нестандартная запись передаётся Integer.parseInt (с тем же исключением)
+    private int parseInt(int start, int end) {
+        int pos = start;
+        boolean negative = false;
+        if (pos < end && (data.get(pos) == '-' || data.get(pos) == '+')) {
+            negative = data.get(pos) == '-';
+            pos++;
+        }
+        int digits = end - pos;
+        if (digits <= 0 || digits > 9) return Integer.parseInt(text(start, end));
+
+        int value = 0;
+        for (; pos < end; pos++) {
+            int digit = data.get(pos) - '0';
+            if (digit < 0 || digit > 9) return Integer.parseInt(text(start, end));
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    // Разбор числа с плавающей точкой. Результат совпадает с Float.parseFloat:
+    // быстрый путь используется, только когда округление гарантированно корректно
+    private float parseFloat(int start, int end) {
+        int pos = start;
+        boolean negative = false;
+        if (pos < end && (data.get(pos) == '-' || data.get(pos) == '+')) {
+            negative = data.get(pos) == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int significant = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean dot = false;
+        for (; pos < end; pos++) {
+            byte b = data.get(pos);
+            if (b >= '0' && b <= '9') {
+                digits++;
+                if (mantissa == 0 && b == '0') {
+                    if (dot) exponent--;
+                    continue;
+                }
+                if (++significant > 18) return slowFloat(start, end);
+                mantissa = mantissa * 10 + (b - '0');
+                if (dot) exponent--;
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) return slowFloat(start, end);
+
+        if (pos < end) {
+            byte b = data.get(pos);
+            if (b != 'e' && b != 'E') return slowFloat(start, end);
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < end && (data.get(pos) == '-' || data.get(pos) == '+')) {
+                negativeExponent = data.get(pos) == '-';
+                pos++;
+            }
+            if (pos == end || end - pos > 3) return slowFloat(start, end);
+            int value = 0;
+            for (; pos < end; pos++) {
+                int digit = data.get(pos) - '0';
+                if (digit < 0 || digit > 9) return slowFloat(start, end);
+                value = value * 10 + digit;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+
+        if (mantissa == 0) return negative ? -0.0f : 0.0f;
+        if (mantissa > MAX_EXACT_MANTISSA || exponent > 22 || exponent < -22) return slowFloat(start, end);
+
+        // Мантисса и степень десяти точны, поэтому double округлён корректно
+        double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        // Двойное округление double -> float ошибается только если value попало ровно на середину
+        // между соседними float; такие случаи и денормализованные значения разбираются медленно
+        if (value < Float.MIN_NORMAL || value > Float.MAX_VALUE) return slowFloat(start, end);
+        if ((Double.doubleToRawLongBits(value) & 0x1FFFFFFFL) == 0x10000000L) return slowFloat(start, end);
+
+        float result = (float) value;
+        return negative ? -result : result;
+    }
+
+    private float slowFloat(int start, int end) {
+        return Float.parseFloat(text(start, end));
+    }
+
+    private String text(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = data.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
@@ -1,48 +1,237 @@
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 // Класс для чтения 3D моделей из OBJ файлов
+// Файл читается большими блоками, строки разбираются ObjParser прямо из байтового буфера
 class ObjReader {
+    private static final int BUFFER_SIZE = 1 << 20;   // Размер блока чтения (1 МБ)
+    private static final int BYTES_PER_RECORD = 40;   // Примерный размер строки "v" или "f" для оценки ёмкости
+    private static final long MIN_CHUNK_SIZE = 8L << 20;   // Части меньше 8 МБ не дают выигрыша от потоков
+    private static final long MAX_CHUNK_SIZE = 256L << 20; // Одна часть отображается в память целиком
+    private static final long PART_SIZE = 32L << 20;       // Часть при чтении без сборки модели в памяти
+
+    // Получатель очередной разобранной части файла (см. readParts)
+    interface PartConsumer {
+        void accept(ObjParser part) throws IOException;
+    }
+
     public static Model3D read(File file) throws IOException {
-        Model3D model = new Model3D();
-        BufferedReader reader = new BufferedReader(new FileReader(file));
-        String line;
-
-        while ((line = reader.readLine()) != null) {
-            line = line.trim();
-            if (line.isEmpty() || line.startsWith("#")) continue;
-
-            String[] parts = line.split("\\s+");
-            if (parts.length == 0) continue;
-
-            // Обработка различных типов данных OBJ файла
-            switch (parts[0]) {
-                case "v":  // Вершина
-                    if (parts.length >= 4) {
-                        float x = Float.parseFloat(parts[1]);
-                        float y = Float.parseFloat(parts[2]);
-                        float z = Float.parseFloat(parts[3]);
-                        model.getVertices().add(new Vector3(x, y, z));
-                    }
+        return read(file, false);
+    }
+
+    // parallel = true: файл делится на части по границам строк, части разбираются параллельно
+    // (fork/join) и затем склеиваются. Результат совпадает с последовательным чтением
+    public static Model3D read(File file, boolean parallel) throws IOException {
+        return read(file, parallel, null);
+    }
+
+    // progress (может быть null) получает прочитанные байты; после отмены чтение
+    // прерывается с InterruptedIOException. Для показа частичной модели чтение идёт последовательно:
+    // при параллельном разборе готовые полигоны появляются только в самом конце
+    public static Model3D read(File file, boolean parallel, LoadProgress progress) throws IOException {
+        boolean preview = progress != null && progress.wantsPreview();
+        if (parallel && !preview && file.length() >= 2 * MIN_CHUNK_SIZE) {
+            return readParallel(file, progress);
+        }
+        return readSequential(file, progress);
+    }
+
+    private static Model3D readSequential(File file, LoadProgress progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (progress != null) progress.setTotal(channel.size());
+            int estimate = (int) Math.min(Integer.MAX_VALUE / 4, channel.size() / BYTES_PER_RECORD / 2);
+            ObjParser parser = new ObjParser(new Model3D(estimate, estimate, estimate * 3));
+
+            byte[] bytes = new byte[BUFFER_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            int filled = 0;
+
+            while (true) {
+                buffer.limit(bytes.length).position(filled);
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    // Последняя строка может не заканчиваться переводом строки
+                    parser.parse(buffer, 0, filled);
                     break;
+                }
+                filled += read;
+                if (progress != null) {
+                    progress.check();
+                    progress.add(read);
+                }
 
-                case "f":  // Грань (полигон)
-                    if (parts.length >= 4) {
-                        Face face = new Face();
-                        for (int i = 1; i < parts.length; i++) {
-                            String[] vertexData = parts[i].split("/");
-                            int vertexIndex = Integer.parseInt(vertexData[0]) - 1;
-                            face.getVertexIndices().add(vertexIndex);
-                        }
-                        model.getPolygons().add(face);
+                // Разбираем только целые строки, незаконченный хвост переносим в начало буфера
+                int lineEnd = filled - 1;
+                while (lineEnd >= 0 && bytes[lineEnd] != '\n' && bytes[lineEnd] != '\r') lineEnd--;
+                if (lineEnd < 0) {
+                    if (filled == bytes.length) {
+                        // Строка длиннее буфера
+                        bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                        buffer = ByteBuffer.wrap(bytes);
                     }
-                    break;
+                    continue;
+                }
+                parser.parse(buffer, 0, lineEnd + 1);
+                System.arraycopy(bytes, lineEnd + 1, bytes, 0, filled - lineEnd - 1);
+                filled -= lineEnd + 1;
+                if (progress != null) progress.offer(parser.getModel());
+            }
+            return parser.getModel();
+        }
+    }
+
+    private static Model3D readParallel(File file, LoadProgress progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (progress != null) progress.setTotal(channel.size());
+            int threads = ForkJoinPool.getCommonPoolParallelism();
+            long chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, channel.size() / (threads * 4L)));
+            long[] bounds = splitIntoChunks(channel, chunkSize);
+            int chunks = bounds.length - 1;
+            ObjParser[] parsers = new ObjParser[chunks];
+
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < chunks; i++) {
+                int chunk = i;
+                tasks.add(ForkJoinTask.adapt(() -> parsers[chunk] = parseChunk(channel, bounds[chunk], bounds[chunk + 1], progress)));
+            }
+            try {
+                ForkJoinPool.commonPool().submit(() -> ForkJoinTask.invokeAll(tasks)).join();
+            } catch (RuntimeException e) {
+                // Ошибка чтения в потоке пула приходит обёрнутой, достаём исходный IOException
+                for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                    if (cause instanceof IOException) throw (IOException) cause;
+                }
+                throw e;
             }
+            if (progress != null) progress.check();
+            return stitch(parsers);
         }
+    }
 
-        reader.close();
+    // Чтение по частям без сборки всей модели: части по PART_SIZE разбираются по очереди
+    // и сразу отдаются consumer, так что в памяти одновременно находится только одна часть.
+    // Индексы частей такие же, как при параллельном чтении: относительные индексы
+    // (getRelativePositions) нужно сдвинуть на число вершин предыдущих частей
+    public static void readParts(File file, LoadProgress progress, PartConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (progress != null) progress.setTotal(channel.size());
+            long[] bounds = splitIntoChunks(channel, PART_SIZE);
+            for (int i = 0; i < bounds.length - 1; i++) {
+                ObjParser part;
+                try {
+                    part = parseChunk(channel, bounds[i], bounds[i + 1], progress);
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                consumer.accept(part);
+            }
+        }
+    }
+
+    // Границы частей: каждая часть начинается сразу после перевода строки
+    private static long[] splitIntoChunks(FileChannel channel, long chunkSize) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long position = chunkSize;
+        while (position < size) {
+            long lineStart = findLineStart(channel, position, probe);
+            if (lineStart >= size) break;
+            bounds.add(lineStart);
+            position = lineStart + chunkSize;
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static long findLineStart(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) return channel.size();
+            for (int i = 0; i < read; i++) {
+                byte b = probe.get(i);
+                if (b == '\n' || b == '\r') return position + i + 1;
+            }
+            position += read;
+        }
+    }
+
+    private static ObjParser parseChunk(FileChannel channel, long start, long end, LoadProgress progress) {
+        try {
+            // Отменённая загрузка не начинает новые части
+            if (progress != null) progress.check();
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            int estimate = (int) ((end - start) / BYTES_PER_RECORD / 2);
+            ObjParser parser = new ObjParser(new Model3D(estimate, estimate, estimate * 3), true);
+            parser.parse(data, 0, (int) (end - start));
+            if (progress != null) progress.add(end - start);
+            return parser;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Склейка частей по порядку: вершины и полигоны копируются подряд, относительные индексы
+    // каждой части сдвигаются на число вершин всех предыдущих частей
+    private static Model3D stitch(ObjParser[] parsers) {
+        int chunks = parsers.length;
+        int[] vertexBase = new int[chunks + 1];
+        int[] faceBase = new int[chunks + 1];
+        int[] indexBase = new int[chunks + 1];
+        for (int i = 0; i < chunks; i++) {
+            Model3D part = parsers[i].getModel();
+            vertexBase[i + 1] = Math.addExact(vertexBase[i], part.getVertexCount());
+            faceBase[i + 1] = Math.addExact(faceBase[i], part.getFaceCount());
+            indexBase[i + 1] = Math.addExact(indexBase[i], part.getIndexCount());
+        }
+
+        float[] coords = new float[Math.max(1, vertexBase[chunks]) * 3];
+        int[] offsets = new int[faceBase[chunks] + 1];
+        int[] indices = new int[Math.max(1, indexBase[chunks])];
+
+        List<ForkJoinTask<?>> copies = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            int chunk = i;
+            copies.add(ForkJoinTask.adapt(() -> copyChunk(parsers[chunk], vertexBase[chunk], faceBase[chunk],
+                    indexBase[chunk], coords, offsets, indices)));
+        }
+        ForkJoinPool.commonPool().submit(() -> ForkJoinTask.invokeAll(copies)).join();
+        offsets[faceBase[chunks]] = indexBase[chunks];
+
+        Model3D model = new Model3D();
+        model.setMesh(coords, vertexBase[chunks], offsets, indices, faceBase[chunks]);
         return model;
     }
+
+    private static void copyChunk(ObjParser parser, int vertexBase, int faceBase, int indexBase,
+                                  float[] coords, int[] offsets, int[] indices) {
+        Model3D part = parser.getModel();
+        System.arraycopy(part.getCoords(), 0, coords, vertexBase * 3, part.getVertexCount() * 3);
+        System.arraycopy(part.getFaceIndices(), 0, indices, indexBase, part.getIndexCount());
+
+        int[] partOffsets = part.getFaceOffsets();
+        for (int f = 0; f < part.getFaceCount(); f++) {
+            offsets[faceBase + f] = partOffsets[f] + indexBase;
+        }
+        int[] relative = parser.getRelativePositions();
+        for (int i = 0; i < parser.getRelativeCount(); i++) {
+            indices[indexBase + relative[i]] += vertexBase;
+        }
+    }
 }
\ No newline at end of file
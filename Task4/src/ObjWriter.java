@@ -1,41 +1,153 @@
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
 
+// Класс для записи 3D моделей в OBJ файлы
+// Числа форматируются прямо в байтовый буфер, который сбрасывается в файл через FileChannel
 class ObjWriter {
+    private static final int BUFFER_SIZE = 1 << 20;   // Размер буфера записи (1 МБ)
+    private static final int MAX_RECORD = 64;         // Запас места под одно число с пробелом
+    private static final double FAST_LIMIT = 1e9;     // Больше — форматирование через DecimalFormat
+
+    private final FileChannel channel;
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private int position;
+    private DecimalFormat fallback;
+
+    private ObjWriter(FileChannel channel) {
+        this.channel = channel;
+    }
+
     public static void write(Model3D model, File file) throws IOException {
-        BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ObjWriter writer = new ObjWriter(channel);
 
-        // Добавляем комментарий с информацией
-        writer.write("# Exported from ModelViewer\n");
-        writer.write("# Vertices: " + model.getVertices().size() + "\n");
-        writer.write("# Faces: " + model.getPolygons().size() + "\n\n");
+            // Добавляем комментарий с информацией
+            writer.putText("# Exported from ModelViewer\n");
+            writer.putText("# Vertices: " + model.getVertexCount() + "\n");
+            writer.putText("# Faces: " + model.getFaceCount() + "\n\n");
 
-        // Записываем вершины с высокой точностью
-        DecimalFormat df = new DecimalFormat("0.######");
-        df.setDecimalSeparatorAlwaysShown(false);
+            // Записываем вершины с точностью до 6 знаков, как DecimalFormat("0.######")
+            for (int i = 0; i < model.getVertexCount(); i++) {
+                writer.ensureSpace(MAX_RECORD * 3);
+                writer.putByte('v');
+                writer.putByte(' ');
+                writer.putFloat(model.getX(i));
+                writer.putByte(' ');
+                writer.putFloat(model.getY(i));
+                writer.putByte(' ');
+                writer.putFloat(model.getZ(i));
+                writer.putByte('\n');
+            }
+
+            writer.putText("\n");
+
+            // Записываем полигоны в формате вершина/текстура/нормаль
+            for (int f = 0; f < model.getFaceCount(); f++) {
+                writer.ensureSpace(2);
+                writer.putByte('f');
+                for (int j = 0; j < model.getFaceSize(f); j++) {
+                    writer.ensureSpace(MAX_RECORD);
+                    writer.putByte(' ');
+                    writer.putInt(model.getFaceVertex(f, j) + 1);
+                    writer.putByte('/');
+                    writer.putByte('/');
+                }
+                writer.ensureSpace(1);
+                writer.putByte('\n');
+            }
 
-        for (Vector3 vertex : model.getVertices()) {
-            writer.write(String.format("v %s %s %s\n",
-                    df.format(vertex.x),
-                    df.format(vertex.y),
-                    df.format(vertex.z)));
+            writer.flush();
         }
+    }
 
-        writer.write("\n");
+    private void ensureSpace(int space) throws IOException {
+        if (position + space > bytes.length) {
+            flush();
+        }
+    }
 
-        // Записываем полигоны с текстурными координатами и нормалями
-        for (Face face : model.getPolygons()) {
-            writer.write("f");
-            for (Integer index : face.getVertexIndices()) {
-                // Формат: вершина/текстура/нормаль
-                writer.write(" " + (index + 1) + "//");
+    private void flush() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, position);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        position = 0;
+    }
+
+    private void putByte(char c) {
+        bytes[position++] = (byte) c;
+    }
+
+    // Текст пишется в кодировке по умолчанию, как раньше через FileWriter
+    private void putText(String text) throws IOException {
+        byte[] encoded = text.getBytes(Charset.defaultCharset());
+        ensureSpace(encoded.length);
+        System.arraycopy(encoded, 0, bytes, position, encoded.length);
+        position += encoded.length;
+    }
+
+    private void putInt(int value) {
+        if (value < 0) {
+            if (value == Integer.MIN_VALUE) {
+                for (char c : Integer.toString(value).toCharArray()) putByte(c);
+                return;
+            }
+            putByte('-');
+            value = -value;
+        }
+        putDigits(value, 1);
+    }
+
+    // Запись неотрицательного числа не короче minDigits цифр (с ведущими нулями)
+    private void putDigits(long value, int minDigits) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) digits++;
+        digits = Math.max(digits, minDigits);
+        for (int i = position + digits - 1; i >= position; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += digits;
+    }
+
+    // Форматирование float до 6 знаков после точки без лишних нулей.
+    // float * 1e6 в double вычисляется точно, а Math.rint округляет к чётному, как DecimalFormat
+    private void putFloat(float value) throws IOException {
+        double abs = Math.abs((double) value);
+        if (!(abs < FAST_LIMIT)) {
+            // Большие числа, NaN и бесконечности. Разделитель всегда точка, как в быстрой ветке, при любой локали
+            if (fallback == null) {
+                fallback = new DecimalFormat("0.######", DecimalFormatSymbols.getInstance(Locale.ROOT));
+                fallback.setDecimalSeparatorAlwaysShown(false);
             }
-            writer.write("\n");
+            putText(fallback.format(value));
+            return;
         }
 
-        writer.close();
+        long scaled = (long) Math.rint(abs * 1_000_000);
+        // DecimalFormat сохраняет минус у отрицательных чисел, округлённых до нуля ("-0")
+        if (Float.floatToRawIntBits(value) < 0) {
+            putByte('-');
+        }
+        putDigits(scaled / 1_000_000, 1);
+
+        int fraction = (int) (scaled % 1_000_000);
+        if (fraction != 0) {
+            int digits = 6;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits--;
+            }
+            putByte('.');
+            putDigits(fraction, digits);
+        }
     }
 }
\ No newline at end of file
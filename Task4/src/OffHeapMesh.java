@@ -0,0 +1,88 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+// Геометрия вне кучи: координаты и полигоны читаются прямо из отображённого в память файла кэша модели.
+// Память под данные выделяет и освобождает система (страничный кэш), поэтому модель может быть больше кучи,
+// а сборщик мусора её не просматривает. Один буфер Java не бывает больше 2 ГБ, поэтому каждый массив
+// отображается окнами по 2^WINDOW_SHIFT элементов
+class OffHeapMesh implements MeshStorage {
+    private static final int WINDOW_SHIFT = 28;                     // 2^28 элементов по 4 байта — 1 ГБ
+    private static final int WINDOW_MASK = (1 << WINDOW_SHIFT) - 1;
+
+    private final FloatBuffer[] coords;     // x0, y0, z0, x1, ...
+    private final IntBuffer[] offsets;      // faceCount + 1 смещений
+    private final IntBuffer[] indices;
+    private final int vertexCount;
+    private final int faceCount;
+
+    private OffHeapMesh(FloatBuffer[] coords, IntBuffer[] offsets, IntBuffer[] indices, int vertexCount, int faceCount) {
+        this.coords = coords;
+        this.offsets = offsets;
+        this.indices = indices;
+        this.vertexCount = vertexCount;
+        this.faceCount = faceCount;
+    }
+
+    // Отображение массивов, записанных подряд в little-endian с позиции position (как в файле MeshCache).
+    // Отображение остаётся действительным и после закрытия канала
+    public static OffHeapMesh map(FileChannel channel, long position, int vertexCount, int faceCount, int indexCount)
+            throws IOException {
+        int coordCount = Math.multiplyExact(vertexCount, 3);
+        FloatBuffer[] coords = new FloatBuffer[windows(coordCount)];
+        for (int w = 0; w < coords.length; w++) {
+            coords[w] = window(channel, position, w, coordCount).asFloatBuffer();
+        }
+        position += coordCount * 4L;
+        IntBuffer[] offsets = mapInts(channel, position, faceCount + 1);
+        position += (faceCount + 1L) * 4;
+        IntBuffer[] indices = mapInts(channel, position, indexCount);
+        return new OffHeapMesh(coords, offsets, indices, vertexCount, faceCount);
+    }
+
+    private static IntBuffer[] mapInts(FileChannel channel, long position, int count) throws IOException {
+        IntBuffer[] buffers = new IntBuffer[windows(count)];
+        for (int w = 0; w < buffers.length; w++) {
+            buffers[w] = window(channel, position, w, count).asIntBuffer();
+        }
+        return buffers;
+    }
+
+    private static int windows(int count) {
+        return Math.max(1, (int) ((count + (long) WINDOW_MASK) >>> WINDOW_SHIFT));
+    }
+
+    private static ByteBuffer window(FileChannel channel, long position, int window, int count) throws IOException {
+        long first = (long) window << WINDOW_SHIFT;
+        long size = Math.max(0, Math.min(count - first, 1L << WINDOW_SHIFT)) * 4;
+        return channel.map(FileChannel.MapMode.READ_ONLY, position + first * 4, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public int getVertexCount() { return vertexCount; }
+
+    @Override
+    public float getX(int vertex) { return coord(vertex * 3); }
+
+    @Override
+    public float getY(int vertex) { return coord(vertex * 3 + 1); }
+
+    @Override
+    public float getZ(int vertex) { return coord(vertex * 3 + 2); }
+
+    @Override
+    public int getFaceCount() { return faceCount; }
+
+    @Override
+    public int getFaceStart(int face) { return offsets[face >>> WINDOW_SHIFT].get(face & WINDOW_MASK); }
+
+    @Override
+    public int getIndex(int position) { return indices[position >>> WINDOW_SHIFT].get(position & WINDOW_MASK); }
+
+    private float coord(int index) {
+        return coords[index >>> WINDOW_SHIFT].get(index & WINDOW_MASK);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+import java.util.Arrays;
+
+// Преобразование вида для одного кадра: поворот вокруг оси Y, затем вокруг оси X,
+// перспективная проекция и масштаб. Синусы и косинусы углов считаются один раз на кадр, а все вершины
+// проецируются за один проход в переиспользуемые массивы экранных координат.
+// Повороты применяются по очереди в том же порядке операций, что и в исходной формуле,
+// поэтому целые экранные координаты совпадают с прежней отрисовкой
+class Projection {
+    public static final double DEPTH = 5.0;   // Расстояние от камеры до центра модели
+
+    private double cosX, sinX, cosY, sinY;
+    // Строки матрицы поворота: (newX, finalY, finalZ) = R * (x, y, z) (для обратного перевода в toModel)
+    private double r00, r01, r02;
+    private double r10, r11, r12;
+    private double r20, r21, r22;
+    private double scale;
+
+    private float[] screenX = new float[0];   // Экранные координаты относительно центра панели
+    private float[] screenY = new float[0];
+    private float[] depth = new float[0];     // Глубина вершины после поворота (finalZ)
+    private int count;
+
+    // Построение матрицы для текущих углов и масштаба
+    public void update(double rotationX, double rotationY, double scale) {
+        cosY = Math.cos(rotationY);
+        sinY = Math.sin(rotationY);
+        cosX = Math.cos(rotationX);
+        sinX = Math.sin(rotationX);
+
+        // Поворот вокруг Y: newX = x*cosY - z*sinY, newZ = x*sinY + z*cosY
+        // Поворот вокруг X: finalY = y*cosX - newZ*sinX, finalZ = y*sinX + newZ*cosX
+        r00 = cosY;          r01 = 0;     r02 = -sinY;
+        r10 = -sinX * sinY;  r11 = cosX;  r12 = -sinX * cosY;
+        r20 = cosX * sinY;   r21 = sinX;  r22 = cosX * cosY;
+        this.scale = scale;
+    }
+
+    // Проекция всех вершин модели
+    public void project(Model3D model) {
+        count = model.getVertexCount();
+        if (screenX.length < count) {
+            int capacity = Math.max(count, screenX.length + (screenX.length >> 1));
+            screenX = Arrays.copyOf(screenX, capacity);
+            screenY = Arrays.copyOf(screenY, capacity);
+            depth = Arrays.copyOf(depth, capacity);
+        }
+
+        if (model.isOffHeap()) {
+            // Массива координат нет, вершины читаются по одной из отображённого файла
+            for (int i = 0; i < count; i++) {
+                projectVertex(i, model.getX(i), model.getY(i), model.getZ(i));
+            }
+            return;
+        }
+        float[] coords = model.getCoords();
+        for (int i = 0, base = 0; i < count; i++, base += 3) {
+            projectVertex(i, coords[base], coords[base + 1], coords[base + 2]);
+        }
+    }
+
+    private void projectVertex(int i, double x, double y, double z) {
+        // Поворот вокруг Y, затем вокруг X
+        double newX = x * cosY - z * sinY;
+        double newZ = x * sinY + z * cosY;
+        double finalY = y * cosX - newZ * sinX;
+        double finalZ = y * sinX + newZ * cosX;
+
+        // Применяем перспективную проекцию
+        double perspective = DEPTH / (DEPTH + finalZ);
+        screenX[i] = screenCoordinate(newX * perspective * scale);
+        screenY[i] = screenCoordinate(finalY * perspective * scale);
+        depth[i] = (float) finalZ;
+    }
+
+    // Координата во float, отбрасывание дробной части которой даёт то же целое, что и у double:
+    // округление до float может дотянуть, например, 2.99999999 до 3.0
+    private static float screenCoordinate(double value) {
+        float coordinate = (float) value;
+        if ((int) coordinate != (int) value) coordinate = value > 0 ? Math.nextDown(coordinate) : Math.nextUp(coordinate);
+        return coordinate;
+    }
+
+    // Проекция одной точки модели; false, если точка за камерой
+    public boolean projectPoint(double x, double y, double z, double[] out) {
+        double newX = x * cosY - z * sinY;
+        double newZ = x * sinY + z * cosY;
+        double finalY = y * cosX - newZ * sinX;
+        double finalZ = y * sinX + newZ * cosX;
+        if (DEPTH + finalZ <= 0) return false;
+        double perspective = DEPTH / (DEPTH + finalZ);
+        out[0] = newX * perspective * scale;
+        out[1] = finalY * perspective * scale;
+        return true;
+    }
+
+    // Перевод вектора из координат вида в координаты модели (обратный поворот — транспонированная матрица)
+    public void toModel(double viewX, double viewY, double viewZ, double[] out) {
+        out[0] = r00 * viewX + r10 * viewY + r20 * viewZ;
+        out[1] = r01 * viewX + r11 * viewY + r21 * viewZ;
+        out[2] = r02 * viewX + r12 * viewY + r22 * viewZ;
+    }
+
+    public double getScale() { return scale; }
+    public int getCount() { return count; }
+    public float[] getScreenX() { return screenX; }
+    public float[] getScreenY() { return screenY; }
+    public float[] getDepth() { return depth; }
+}
\ No newline at end of file
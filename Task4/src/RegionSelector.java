@@ -0,0 +1,123 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+// Выбор элементов областью экрана: прямоугольником или произвольным контуром (лассо).
+// Координаты области и проекции — от центра панели. Контур лассо заранее растеризуется в битовую маску,
+// поэтому проверка каждой точки стоит O(1); вершины и полигоны проверяются параллельно блоками,
+// каждый блок пишет только в свои слова результата
+class RegionSelector {
+    private static final int CHUNK_SIZE = 1 << 14;          // Кратно 64: блоки не делят слова битовой карты
+    private static final int PARALLEL_THRESHOLD = 1 << 15;
+
+    private final int minX, minY, maxX, maxY;   // Границы области в пикселях (включительно)
+    private final long[] mask;                  // Пиксели внутри лассо построчно; null для прямоугольника
+    private final int maskWidth;
+
+    private RegionSelector(int minX, int minY, int maxX, int maxY, long[] mask) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.mask = mask;
+        maskWidth = maxX - minX + 1;
+    }
+
+    // Прямоугольник по двум противоположным углам
+    public static RegionSelector rectangle(int x0, int y0, int x1, int y1) {
+        return new RegionSelector(Math.min(x0, x1), Math.min(y0, y1), Math.max(x0, x1), Math.max(y0, y1), null);
+    }
+
+    // Замкнутый контур из count точек; внутренность по правилу чёт-нечет
+    public static RegionSelector lasso(int[] xs, int[] ys, int count) {
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        int width = maxX - minX + 1, height = maxY - minY + 1;
+        long[] mask = new long[(int) (((long) width * height + 63) >>> 6)];
+
+        // Заливка построчно: пересечения рёбер с центром строки, пиксели между парами пересечений
+        double[] crossings = new double[count];
+        for (int row = 0; row < height; row++) {
+            double y = minY + row + 0.5;
+            int found = 0;
+            for (int i = 0, j = count - 1; i < count; j = i++) {
+                double ya = ys[j], yb = ys[i];
+                if (ya <= y && y < yb || yb <= y && y < ya) {
+                    crossings[found++] = xs[j] + (y - ya) * (xs[i] - xs[j]) / (yb - ya);
+                }
+            }
+            Arrays.sort(crossings, 0, found);
+            for (int k = 0; k + 1 < found; k += 2) {
+                int from = (int) Math.ceil(crossings[k] - 0.5) - minX;
+                int to = (int) Math.ceil(crossings[k + 1] - 0.5) - minX;
+                for (int x = Math.max(0, from); x < Math.min(width, to); x++) {
+                    long bit = (long) row * width + x;
+                    mask[(int) (bit >>> 6)] |= 1L << bit;
+                }
+            }
+        }
+        return new RegionSelector(minX, minY, maxX, maxY, mask);
+    }
+
+    // Попадает ли точка экрана в область (пиксель определяется так же, как при отрисовке)
+    public boolean contains(double x, double y) {
+        int px = (int) x, py = (int) y;
+        if (px < minX || px > maxX || py < minY || py > maxY) return false;
+        if (mask == null) return true;
+        long bit = (long) (py - minY) * maskWidth + (px - minX);
+        return (mask[(int) (bit >>> 6)] & 1L << bit) != 0;
+    }
+
+    // Вершины перед камерой, проекции которых попали в область
+    public BitSet selectVertices(Projection projection) {
+        float[] screenX = projection.getScreenX();
+        float[] screenY = projection.getScreenY();
+        float[] depth = projection.getDepth();
+        return select(projection.getCount(), i ->
+                Projection.DEPTH + depth[i] > 0 && contains(screenX[i], screenY[i]));
+    }
+
+    // Полигоны целиком перед камерой, центр проекции которых попал в область
+    public BitSet selectFaces(Model3D model, Projection projection) {
+        float[] screenX = projection.getScreenX();
+        float[] screenY = projection.getScreenY();
+        float[] depth = projection.getDepth();
+        int vertices = projection.getCount();
+        return select(model.getFaceCount(), f -> {
+            int start = model.getFaceStart(f);
+            int size = model.getFaceSize(f);
+            if (size == 0) return false;
+            double x = 0, y = 0;
+            for (int j = 0; j < size; j++) {
+                int v = model.getIndex(start + j);
+                if (v < 0 || v >= vertices || Projection.DEPTH + depth[v] <= 0) return false;
+                x += screenX[v];
+                y += screenY[v];
+            }
+            return contains(x / size, y / size);
+        });
+    }
+
+    private interface ElementTest {
+        boolean test(int index);
+    }
+
+    private static BitSet select(int count, ElementTest test) {
+        long[] words = new long[(count + 63) >>> 6];
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream range = IntStream.range(0, chunks);
+        if (count >= PARALLEL_THRESHOLD) range = range.parallel();
+        range.forEach(c -> {
+            int to = Math.min(count, (c + 1) * CHUNK_SIZE);
+            for (int i = c * CHUNK_SIZE; i < to; i++) {
+                if (test.test(i)) words[i >>> 6] |= 1L << i;
+            }
+        });
+        return BitSet.valueOf(words);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,433 @@
+import java.awt.*;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+// Отрисовка модели в заданный графический контекст.
+// У каждого потока, который рисует кадры, свой экземпляр со своими буферами
+class SceneRenderer {
+    // Цвета и линии создаются один раз, а не на каждый полигон
+    private static final Color FILL_COLOR = new Color(200, 200, 255, 128);     // Полупрозрачный синий для обычных
+    private static final Color SELECTED_FILL_COLOR = new Color(255, 0, 0, 128); // Полупрозрачный красный для выбранных
+    private static final BasicStroke THIN_STROKE = new BasicStroke(1);
+    private static final BasicStroke THICK_STROKE = new BasicStroke(2);
+    // Непрозрачные цвета заливки по ступеням яркости для плоского затенения
+    private static final Color[] SHADES = colors(FlatShading.palette(0xC8C8FF));
+    private static final Color[] SELECTED_SHADES = colors(FlatShading.palette(0xFF0000));
+    // Полигонов в одном пакете: ограничивает размер контуров и сохраняет порядок наложения между пакетами
+    private static final int BATCH_SIZE = 4096;
+
+    // Проверяется между этапами и пакетами кадра: true — кадр прерывается с CancellationException
+    private final BooleanSupplier cancelled;
+
+    // Экранные координаты вершин текущего кадра и буферы для одного полигона
+    private final Projection projection = new Projection();
+    private int[] xPoints = new int[8];
+    private int[] yPoints = new int[8];
+    private TileRasterizer rasterizer;   // Создаётся при первом кадре с буфером глубины
+    private final FaceCuller culler = new FaceCuller();
+    private final FlatShading shading = new FlatShading();
+    private long[] depthOrder = new long[0];   // Видимые полигоны от дальних к ближним (глубина и номер в одном long)
+
+    // Пакеты полигонов по стилю, переиспользуются между кадрами
+    private final Path2D.Float fillBatch = new Path2D.Float(Path2D.WIND_NON_ZERO, 1 << 16);
+    private final Path2D.Float selectedFillBatch = new Path2D.Float(Path2D.WIND_NON_ZERO, 1 << 10);
+    private final Path2D.Float strokeBatch = new Path2D.Float(Path2D.WIND_NON_ZERO, 1 << 16);
+    private final Path2D.Float selectedStrokeBatch = new Path2D.Float(Path2D.WIND_NON_ZERO, 1 << 10);
+    // Кадр, в котором ребро уже попало в пакет контуров: общее ребро двух полигонов рисуется один раз
+    private int[] edgeFrames = new int[0];
+    private int edgeFrame;
+    // Готовые изображения точек вершин: [0] без сглаживания, [1] со сглаживанием
+    private final BufferedImage[] vertexSprites = new BufferedImage[2];
+    private final BufferedImage[] selectedVertexSprites = new BufferedImage[2];
+
+    public SceneRenderer() {
+        this(() -> false);
+    }
+
+    public SceneRenderer(BooleanSupplier cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    // Проекция всех вершин модели для поворота и масштаба кадра
+    public Projection project(ViewState view) {
+        projection.update(view.rotationX, view.rotationY, view.scale);
+        projection.project(view.model);
+        return projection;
+    }
+
+    public void render(Graphics2D g2d, ViewState view) {
+        Model3D model = view.model;
+        FrameProfiler profiler = view.profiler;
+        if (profiler != null) profiler.beginFrame();
+
+        // Преобразование 3D координат в 2D для всех вершин сразу и отсечение невидимых полигонов
+        long start = profiler != null ? System.nanoTime() : 0;
+        checkCancelled();
+        project(view);
+        if (profiler != null) {
+            profiler.add(FrameProfiler.Phase.PROJECTION, start);
+            start = System.nanoTime();
+        }
+        checkCancelled();
+        culler.cull(model, projection, view.width, view.height, view.cullBackFaces, view.cullFrustum);
+        if (profiler != null) profiler.add(FrameProfiler.Phase.CULLING, start);
+        checkCancelled();
+        if (view.flatShading) {
+            // Нормали берутся из модели (считаются один раз на версию), здесь только направление на свет
+            if (profiler != null) start = System.nanoTime();
+            shading.update(model, projection);
+            if (profiler != null) profiler.add(FrameProfiler.Phase.SHADING, start);
+            checkCancelled();
+        }
+
+        if (view.depthBuffer) {
+            // Кадр целиком растеризуется в изображение с проверкой глубины
+            if (profiler != null) start = System.nanoTime();
+            if (rasterizer == null) rasterizer = new TileRasterizer();
+            BufferedImage frame = rasterizer.render(view, projection, culler, view.flatShading ? shading : null);
+            checkCancelled();
+            g2d.drawImage(frame, 0, 0, null);
+            if (profiler != null) profiler.add(FrameProfiler.Phase.RASTER, start);
+        } else {
+            drawScene(g2d, view);
+        }
+        // Счётчики отсечения показывает и таблица замеров, поэтому вместе они не выводятся
+        boolean overlay = profiler != null && profiler.isOverlay();
+        if ((view.cullBackFaces || view.cullFrustum) && !overlay) {
+            drawCullingStats(g2d, view);
+        }
+
+        if (profiler != null) {
+            profiler.count(culler.getVisibleCount(), culler.getCulledTotal(), culler.getVisibleVertexCount());
+            profiler.endFrame();
+        }
+    }
+
+    private void drawScene(Graphics2D g2d, ViewState view) {
+        // Настройка графического контекста
+        Graphics2D g = (Graphics2D) g2d.create();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                view.antialiasing ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+        g.translate(view.width / 2, view.height / 2);
+
+        if (view.flatShading) {
+            drawFacesShaded(g, view);
+            if (view.batchedDrawing) drawVerticesBatched(g, view); else drawVertices(g, view);
+        } else if (view.batchedDrawing) {
+            drawFacesBatched(g, view);
+            drawVerticesBatched(g, view);
+        } else {
+            drawFaces(g, view);
+            drawVertices(g, view);
+        }
+        g.dispose();
+    }
+
+    // Каждый полигон отдельными вызовами: точный порядок наложения полупрозрачных заливок
+    private void drawFaces(Graphics2D g2d, ViewState view) {
+        Model3D model = view.model;
+        FrameProfiler profiler = view.profiler;
+        long phaseStart = 0;
+        float[] screenX = projection.getScreenX();
+        float[] screenY = projection.getScreenY();
+
+        // Отрисовка полигонов
+        int[] visible = culler.getVisibleFaces();
+        for (int k = 0; k < culler.getVisibleCount(); k++) {
+            if (k % BATCH_SIZE == 0) checkCancelled();
+            int i = visible[k];
+            int size = model.getFaceSize(i);
+
+            if (xPoints.length < size) {
+                xPoints = new int[size];
+                yPoints = new int[size];
+            }
+            int start = model.getFaceStart(i);
+            for (int j = 0; j < size; j++) {
+                int vertex = model.getIndex(start + j);
+                xPoints[j] = (int) screenX[vertex];
+                yPoints[j] = (int) screenY[vertex];
+            }
+
+            // Заливка полигона
+            boolean selected = view.selectedPolygons.contains(i);
+            g2d.setColor(selected ? SELECTED_FILL_COLOR : FILL_COLOR);
+            if (profiler != null) phaseStart = System.nanoTime();
+            g2d.fillPolygon(xPoints, yPoints, size);
+            if (profiler != null) {
+                profiler.add(FrameProfiler.Phase.FILL, phaseStart);
+                phaseStart = System.nanoTime();
+            }
+
+            // Отрисовка контура полигона
+            if (!view.drawEdges) continue;
+            if (selected) {
+                g2d.setColor(Color.RED);
+                g2d.setStroke(THICK_STROKE);
+            } else {
+                g2d.setColor(Color.BLUE);
+                g2d.setStroke(THIN_STROKE);
+            }
+            g2d.drawPolygon(xPoints, yPoints, size);
+            if (profiler != null) profiler.add(FrameProfiler.Phase.STROKE, phaseStart);
+        }
+    }
+
+    // Полигоны собираются в контуры по стилю, и каждый пакет рисуется четырьмя вызовами вместо четырёх на полигон.
+    // Перекрытия внутри одной заливки закрашиваются один раз, поэтому полупрозрачность там не накапливается.
+    // Каркас обычных полигонов идёт по таблице рёбер: общее ребро соседних полигонов обводится один раз
+    private void drawFacesBatched(Graphics2D g2d, ViewState view) {
+        Model3D model = view.model;
+        FrameProfiler profiler = view.profiler;
+        long phaseStart = 0;
+        float[] screenX = projection.getScreenX();
+        float[] screenY = projection.getScreenY();
+        int[] visible = culler.getVisibleFaces();
+        int count = culler.getVisibleCount();
+        // Для частично загруженной модели таблица рёбер устарела бы со следующим снимком, контуры рисуются целиком.
+        // Для модели вне кучи таблица не строится: она заняла бы в куче больше, чем сами полигоны.
+        // Таблица большой модели строится вне отрисовки; пока её нет, контуры тоже рисуются целиком
+        EdgeTable edges = null;
+        if (!view.partial && view.drawEdges && !model.isOffHeap()) {
+            edges = model.getFaceCount() <= LevelOfDetail.FACE_BUDGET ? EdgeTable.of(model) : EdgeTable.peek(model);
+        }
+        if (edges != null) nextEdgeFrame(edges.getEdgeCount());
+
+        for (int from = 0; from < count; from += BATCH_SIZE) {
+            checkCancelled();
+            if (profiler != null) phaseStart = System.nanoTime();
+            fillBatch.reset();
+            selectedFillBatch.reset();
+            strokeBatch.reset();
+            selectedStrokeBatch.reset();
+            int to = Math.min(count, from + BATCH_SIZE);
+            for (int k = from; k < to; k++) {
+                int i = visible[k];
+                boolean selected = view.selectedPolygons.contains(i);
+                appendFace(selected ? selectedFillBatch : fillBatch, model, i, screenX, screenY);
+                if (!view.drawEdges) continue;
+                if (selected || edges == null) {
+                    appendFace(selected ? selectedStrokeBatch : strokeBatch, model, i, screenX, screenY);
+                } else {
+                    appendEdges(strokeBatch, model, edges, i, screenX, screenY);
+                }
+            }
+
+            // Заливки пакета
+            g2d.setColor(FILL_COLOR);
+            g2d.fill(fillBatch);
+            g2d.setColor(SELECTED_FILL_COLOR);
+            g2d.fill(selectedFillBatch);
+            if (profiler != null) {
+                profiler.add(FrameProfiler.Phase.FILL, phaseStart);
+                phaseStart = System.nanoTime();
+            }
+
+            // Контуры пакета, выбранные поверх обычных
+            if (!view.drawEdges) continue;
+            g2d.setColor(Color.BLUE);
+            g2d.setStroke(THIN_STROKE);
+            g2d.draw(strokeBatch);
+            g2d.setColor(Color.RED);
+            g2d.setStroke(THICK_STROKE);
+            g2d.draw(selectedStrokeBatch);
+            if (profiler != null) profiler.add(FrameProfiler.Phase.STROKE, phaseStart);
+        }
+    }
+
+    // Непрозрачные полигоны с яркостью по нормали, по одному от дальних к ближним (алгоритм художника):
+    // при непрозрачной заливке порядок наложения важнее числа вызовов, поэтому пакеты здесь не собираются.
+    // Контур рисуется сразу за заливкой, чтобы ближние полигоны закрывали и рёбра дальних.
+    // Заливки всегда без сглаживания: у соседних непрозрачных полигонов оно оставляет светлые швы
+    // и на больших моделях в разы медленнее
+    private void drawFacesShaded(Graphics2D g2d, ViewState view) {
+        Model3D model = view.model;
+        FrameProfiler profiler = view.profiler;
+        long phaseStart = profiler != null ? System.nanoTime() : 0;
+        float[] screenX = projection.getScreenX();
+        float[] screenY = projection.getScreenY();
+        float[] depth = projection.getDepth();
+        int[] visible = culler.getVisibleFaces();
+        int count = culler.getVisibleCount();
+
+        // Сортировка по средней глубине вершин: биты float с обращёнными для отрицательных чисел
+        // разрядами сравниваются как int в том же порядке, что и сами числа
+        if (depthOrder.length < count) depthOrder = new long[count];
+        for (int k = 0; k < count; k++) {
+            int face = visible[k];
+            int start = model.getFaceStart(face);
+            int size = model.getFaceSize(face);
+            float sum = 0;
+            for (int j = 0; j < size; j++) sum += depth[model.getIndex(start + j)];
+            int bits = Float.floatToIntBits(-sum / size);
+            bits ^= (bits >> 31) & 0x7FFFFFFF;
+            depthOrder[k] = (long) bits << 32 | face;
+        }
+        Arrays.sort(depthOrder, 0, count);
+        if (profiler != null) profiler.add(FrameProfiler.Phase.SHADING, phaseStart);
+
+        Graphics2D fills = (Graphics2D) g2d.create();
+        fills.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        for (int k = 0; k < count; k++) {
+            if (k % BATCH_SIZE == 0) checkCancelled();
+            int i = (int) depthOrder[k];
+            int size = model.getFaceSize(i);
+            if (xPoints.length < size) {
+                xPoints = new int[size];
+                yPoints = new int[size];
+            }
+            int start = model.getFaceStart(i);
+            for (int j = 0; j < size; j++) {
+                int vertex = model.getIndex(start + j);
+                xPoints[j] = (int) screenX[vertex];
+                yPoints[j] = (int) screenY[vertex];
+            }
+
+            boolean selected = view.selectedPolygons.contains(i);
+            fills.setColor((selected ? SELECTED_SHADES : SHADES)[shading.level(i)]);
+            if (profiler != null) phaseStart = System.nanoTime();
+            fills.fillPolygon(xPoints, yPoints, size);
+            if (profiler != null) profiler.add(FrameProfiler.Phase.FILL, phaseStart);
+
+            if (!view.drawEdges) continue;
+            if (profiler != null) phaseStart = System.nanoTime();
+            if (selected) {
+                g2d.setColor(Color.RED);
+                g2d.setStroke(THICK_STROKE);
+            } else {
+                g2d.setColor(Color.BLUE);
+                g2d.setStroke(THIN_STROKE);
+            }
+            g2d.drawPolygon(xPoints, yPoints, size);
+            if (profiler != null) profiler.add(FrameProfiler.Phase.STROKE, phaseStart);
+        }
+        fills.dispose();
+    }
+
+    private void checkCancelled() {
+        if (cancelled.getAsBoolean()) throw new CancellationException("Frame cancelled");
+    }
+
+    private static Color[] colors(int[] palette) {
+        Color[] colors = new Color[palette.length];
+        for (int i = 0; i < palette.length; i++) colors[i] = new Color(palette[i]);
+        return colors;
+    }
+
+    // Замкнутый контур полигона в пакет (координаты округляются так же, как при отрисовке по одному)
+    private static void appendFace(Path2D.Float batch, Model3D model, int face, float[] screenX, float[] screenY) {
+        int start = model.getFaceStart(face);
+        int size = model.getFaceSize(face);
+        if (size == 0) return;
+        int vertex = model.getIndex(start);
+        batch.moveTo((int) screenX[vertex], (int) screenY[vertex]);
+        for (int j = 1; j < size; j++) {
+            vertex = model.getIndex(start + j);
+            batch.lineTo((int) screenX[vertex], (int) screenY[vertex]);
+        }
+        batch.closePath();
+    }
+
+    // Рёбра полигона, которые ещё не попали в контуры этого кадра, отдельными отрезками
+    private void appendEdges(Path2D.Float batch, Model3D model, EdgeTable edges, int face, float[] screenX, float[] screenY) {
+        int start = model.getFaceStart(face);
+        int size = model.getFaceSize(face);
+        for (int j = 0; j < size; j++) {
+            int edge = edges.getCornerEdge(start + j);
+            if (edge < 0 || edgeFrames[edge] == edgeFrame) continue;
+            edgeFrames[edge] = edgeFrame;
+            int a = edges.getVertexA(edge), b = edges.getVertexB(edge);
+            batch.moveTo((int) screenX[a], (int) screenY[a]);
+            batch.lineTo((int) screenX[b], (int) screenY[b]);
+        }
+    }
+
+    // Новый номер кадра для отметок рёбер; массив отметок обнуляется только при переполнении номера
+    private void nextEdgeFrame(int edgeCount) {
+        if (edgeFrames.length < edgeCount) edgeFrames = new int[edgeCount];
+        if (++edgeFrame == Integer.MAX_VALUE) {
+            Arrays.fill(edgeFrames, 0);
+            edgeFrame = 1;
+        }
+    }
+
+    private void drawVertices(Graphics2D g2d, ViewState view) {
+        Model3D model = view.model;
+        FrameProfiler profiler = view.profiler;
+        long phaseStart = 0;
+        float[] screenX = projection.getScreenX();
+        float[] screenY = projection.getScreenY();
+
+        // Отрисовка вершин
+        if (profiler != null) phaseStart = System.nanoTime();
+        g2d.setStroke(THIN_STROKE);
+        for (int i = 0; i < model.getVertexCount(); i++) {
+            if (i % BATCH_SIZE == 0) checkCancelled();
+            if (!culler.isVertexVisible(i)) continue;
+            int x = (int) screenX[i];
+            int y = (int) screenY[i];
+
+            // Выделение выбранных вершин
+            if (view.selectedVertices.contains(i)) {
+                g2d.setColor(Color.RED);
+                g2d.fillOval(x - 4, y - 4, 8, 8);
+            } else {
+                g2d.setColor(Color.BLACK);
+                g2d.fillOval(x - 2, y - 2, 4, 4);
+            }
+        }
+        if (profiler != null) profiler.add(FrameProfiler.Phase.VERTICES, phaseStart);
+    }
+
+    // Вершины штампуются готовым изображением точки: копирование пикселей вместо растеризации круга.
+    // Выбранные рисуются вторым проходом поверх обычных
+    private void drawVerticesBatched(Graphics2D g2d, ViewState view) {
+        Model3D model = view.model;
+        FrameProfiler profiler = view.profiler;
+        long phaseStart = profiler != null ? System.nanoTime() : 0;
+        float[] screenX = projection.getScreenX();
+        float[] screenY = projection.getScreenY();
+        int mode = view.antialiasing ? 1 : 0;
+        if (vertexSprites[mode] == null) {
+            vertexSprites[mode] = createSprite(4, Color.BLACK, view.antialiasing);
+            selectedVertexSprites[mode] = createSprite(8, Color.RED, view.antialiasing);
+        }
+        BufferedImage sprite = vertexSprites[mode];
+        BufferedImage selectedSprite = selectedVertexSprites[mode];
+
+        boolean anySelected = !view.selectedVertices.isEmpty();
+        for (int i = 0; i < model.getVertexCount(); i++) {
+            if (i % BATCH_SIZE == 0) checkCancelled();
+            if (!culler.isVertexVisible(i) || anySelected && view.selectedVertices.contains(i)) continue;
+            g2d.drawImage(sprite, (int) screenX[i] - 2, (int) screenY[i] - 2, null);
+        }
+        for (int i = view.selectedVertices.next(0); i >= 0 && i < model.getVertexCount(); i = view.selectedVertices.next(i + 1)) {
+            if (!culler.isVertexVisible(i)) continue;
+            g2d.drawImage(selectedSprite, (int) screenX[i] - 4, (int) screenY[i] - 4, null);
+        }
+        if (profiler != null) profiler.add(FrameProfiler.Phase.VERTICES, phaseStart);
+    }
+
+    // Круг диаметром size, нарисованный так же, как fillOval на месте вершины
+    private static BufferedImage createSprite(int size, Color color, boolean antialiasing) {
+        BufferedImage sprite = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = sprite.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                antialiasing ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+        g.setColor(color);
+        g.fillOval(0, 0, size, size);
+        g.dispose();
+        return sprite;
+    }
+
+    // Счётчики отсечения за кадр в левом верхнем углу
+    private void drawCullingStats(Graphics2D g2d, ViewState view) {
+        g2d.setColor(view.background.getRed() < 128 ? Color.WHITE : Color.BLACK);
+        g2d.drawString("Faces: " + culler.getVisibleCount() + " drawn, " + culler.getCulledTotal() + " culled"
+                + " (back " + culler.getCulledBackFaces() + ", frustum " + culler.getCulledFrustum()
+                + ", near " + culler.getCulledNear() + ", degenerate " + culler.getCulledDegenerate() + ")", 8, 16);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+import java.util.BitSet;
+
+// Множество выбранных вершин или полигонов на битовой карте: проверка и изменение без упаковки в Integer.
+// Номер элемента — индекс бита, отрицательные номера не допускаются
+class SelectionSet {
+    private final BitSet bits;
+
+    public SelectionSet() {
+        bits = new BitSet();
+    }
+
+    private SelectionSet(BitSet bits) {
+        this.bits = bits;
+    }
+
+    public boolean contains(int index) {
+        return index >= 0 && bits.get(index);
+    }
+
+    public void add(int index) {
+        bits.set(index);
+    }
+
+    public void remove(int index) {
+        if (index >= 0) bits.clear(index);
+    }
+
+    // Переключение элемента; true, если после вызова он выбран
+    public boolean toggle(int index) {
+        bits.flip(index);
+        return bits.get(index);
+    }
+
+    // Добавление всех элементов другой битовой карты (выбор областью)
+    public void addAll(BitSet other) {
+        bits.or(other);
+    }
+
+    public void clear() {
+        bits.clear();
+    }
+
+    public boolean isEmpty() {
+        return bits.isEmpty();
+    }
+
+    public int size() {
+        return bits.cardinality();
+    }
+
+    // Следующий выбранный номер начиная с from или -1
+    public int next(int from) {
+        return bits.nextSetBit(from);
+    }
+
+    // Копия битовой карты для операций над моделью
+    public BitSet toBitSet() {
+        return (BitSet) bits.clone();
+    }
+
+    public SelectionSet copy() {
+        return new SelectionSet((BitSet) bits.clone());
+    }
+}
\ No newline at end of file
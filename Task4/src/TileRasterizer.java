@@ -0,0 +1,325 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Программный растеризатор с буфером глубины.
+// Экран делится на плитки, спроецированные полигоны и вершины раскладываются по плиткам,
+// после чего плитки растеризуются параллельно в общий int[] буфер цвета и float[] буфер глубины.
+// Результат — одно изображение, которое целиком передаётся в Swing
+class TileRasterizer {
+    private static final int TILE_SIZE = 64;
+    private static final float DEPTH_BIAS = 1.001f;   // Допуск, чтобы рёбра и точки не прятались за своей гранью
+
+    private static final int EDGE_RGB = 0x0000FF;
+    private static final int SELECTED_EDGE_RGB = 0xFF0000;
+    private static final int VERTEX_RGB = 0x000000;
+    private static final int SELECTED_VERTEX_RGB = 0xFF0000;
+    // Цвета заливки по ступеням яркости для плоского затенения
+    private static final int[] SHADES = FlatShading.palette(0xC8C8FF);
+    private static final int[] SELECTED_SHADES = FlatShading.palette(0xFF0000);
+
+    private int width, height, tilesX, tilesY;
+    private BufferedImage image;
+    private int[] color;             // Буфер цвета (данные изображения)
+    private float[] depth;           // 1 / (DEPTH + z): чем больше, тем ближе к камере
+
+    // Данные вершин в пикселях
+    private float[] pixelX = new float[0];
+    private float[] pixelY = new float[0];
+    private float[] inverseW = new float[0];
+    private boolean[] vertexHidden = new boolean[0];
+
+    // Раскладка по плиткам в формате CSR: binStart[tile]..binStart[tile + 1]
+    private int[] faceBinStart = new int[1];
+    private int[] faceBins = new int[0];
+    private int[] vertexBinStart = new int[1];
+    private int[] vertexBins = new int[0];
+
+    // Выбранные элементы текущего кадра (только чтение из потоков плиток)
+    private SelectionSet faceSelected;
+    private SelectionSet vertexSelected;
+    private FlatShading shading;     // Яркость полигонов (null — заливка одним цветом)
+    private boolean drawEdges;
+
+    // shading — яркость полигонов по нормалям, подготовленная для этого кадра, или null
+    public BufferedImage render(ViewState view, Projection projection, FaceCuller culler, FlatShading shading) {
+        Model3D model = view.model;
+        resize(Math.max(1, view.width), Math.max(1, view.height));
+        prepareVertices(model, projection, culler);
+        faceSelected = view.selectedPolygons;
+        vertexSelected = view.selectedVertices;
+        this.shading = shading;
+        drawEdges = view.drawEdges;
+        binFaces(model, culler);
+        binVertices(model.getVertexCount());
+
+        int background = view.background.getRGB() & 0xFFFFFF;
+        // Цвет заливки как у полупрозрачной заливки поверх фона, но непрозрачный
+        int fill = blend(new Color(200, 200, 255), view.background);
+        int selectedFill = blend(Color.RED, view.background);
+
+        IntStream.range(0, tilesX * tilesY).parallel()
+                .forEach(tile -> renderTile(tile, model, background, fill, selectedFill));
+        return image;
+    }
+
+    private void resize(int width, int height) {
+        if (image != null && this.width == width && this.height == height) return;
+        this.width = width;
+        this.height = height;
+        tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        color = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        depth = new float[width * height];
+        faceBinStart = new int[tilesX * tilesY + 1];
+        vertexBinStart = new int[tilesX * tilesY + 1];
+    }
+
+    // Перевод экранных координат (от центра) в пиксели и вычисление 1/w
+    private void prepareVertices(Model3D model, Projection projection, FaceCuller culler) {
+        int count = model.getVertexCount();
+        if (pixelX.length < count) {
+            pixelX = new float[count];
+            pixelY = new float[count];
+            inverseW = new float[count];
+            vertexHidden = new boolean[count];
+        }
+        float[] screenX = projection.getScreenX();
+        float[] screenY = projection.getScreenY();
+        float[] viewZ = projection.getDepth();
+        int centerX = width / 2, centerY = height / 2;
+        for (int i = 0; i < count; i++) {
+            pixelX[i] = (int) screenX[i] + centerX + 0.5f;
+            pixelY[i] = (int) screenY[i] + centerY + 0.5f;
+            // Отсечённые вершины (за камерой или вне панели) помечаются нулём и не рисуются как точки
+            inverseW[i] = (float) (1.0 / (Projection.DEPTH + viewZ[i]));
+            vertexHidden[i] = !culler.isVertexVisible(i);
+        }
+    }
+
+    // Раскладка видимых полигонов по плиткам, которые пересекает их ограничивающий прямоугольник
+    private void binFaces(Model3D model, FaceCuller culler) {
+        int tiles = tilesX * tilesY;
+        int[] visible = culler.getVisibleFaces();
+        Arrays.fill(faceBinStart, 0);
+        for (int pass = 0; pass < 2; pass++) {
+            for (int k = 0; k < culler.getVisibleCount(); k++) {
+                int f = visible[k];
+                int start = model.getFaceStart(f);
+                int size = model.getFaceSize(f);
+
+                float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+                float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+                for (int j = 0; j < size; j++) {
+                    int v = model.getIndex(start + j);
+                    minX = Math.min(minX, pixelX[v]);
+                    maxX = Math.max(maxX, pixelX[v]);
+                    minY = Math.min(minY, pixelY[v]);
+                    maxY = Math.max(maxY, pixelY[v]);
+                }
+                if (maxX < 0 || maxY < 0 || minX >= width || minY >= height) continue;
+
+                int tx0 = Math.max(0, (int) minX / TILE_SIZE), tx1 = Math.min(tilesX - 1, (int) maxX / TILE_SIZE);
+                int ty0 = Math.max(0, (int) minY / TILE_SIZE), ty1 = Math.min(tilesY - 1, (int) maxY / TILE_SIZE);
+                for (int ty = ty0; ty <= ty1; ty++) {
+                    for (int tx = tx0; tx <= tx1; tx++) {
+                        int tile = ty * tilesX + tx;
+                        if (pass == 0) faceBinStart[tile + 1]++;
+                        else faceBins[faceBinStart[tile]++] = f;
+                    }
+                }
+            }
+            if (pass == 0) {
+                for (int t = 0; t < tiles; t++) faceBinStart[t + 1] += faceBinStart[t];
+                if (faceBins.length < faceBinStart[tiles]) faceBins = new int[faceBinStart[tiles]];
+            } else {
+                // После второго прохода начала сдвинулись на размер корзины — восстанавливаем
+                for (int t = tiles; t > 0; t--) faceBinStart[t] = faceBinStart[t - 1];
+                faceBinStart[0] = 0;
+            }
+        }
+    }
+
+    // Раскладка маркеров вершин (радиус до 4 пикселей) по плиткам
+    private void binVertices(int count) {
+        int tiles = tilesX * tilesY;
+        Arrays.fill(vertexBinStart, 0);
+        for (int pass = 0; pass < 2; pass++) {
+            for (int v = 0; v < count; v++) {
+                if (vertexHidden[v]) continue;
+                int x = (int) pixelX[v], y = (int) pixelY[v];
+                if (x < -4 || y < -4 || x >= width + 4 || y >= height + 4) continue;
+                int tx0 = Math.max(0, (x - 4) / TILE_SIZE), tx1 = Math.min(tilesX - 1, Math.max(0, x + 4) / TILE_SIZE);
+                int ty0 = Math.max(0, (y - 4) / TILE_SIZE), ty1 = Math.min(tilesY - 1, Math.max(0, y + 4) / TILE_SIZE);
+                for (int ty = ty0; ty <= ty1; ty++) {
+                    for (int tx = tx0; tx <= tx1; tx++) {
+                        int tile = ty * tilesX + tx;
+                        if (pass == 0) vertexBinStart[tile + 1]++;
+                        else vertexBins[vertexBinStart[tile]++] = v;
+                    }
+                }
+            }
+            if (pass == 0) {
+                for (int t = 0; t < tiles; t++) vertexBinStart[t + 1] += vertexBinStart[t];
+                if (vertexBins.length < vertexBinStart[tiles]) vertexBins = new int[vertexBinStart[tiles]];
+            } else {
+                for (int t = tiles; t > 0; t--) vertexBinStart[t] = vertexBinStart[t - 1];
+                vertexBinStart[0] = 0;
+            }
+        }
+    }
+
+    private void renderTile(int tile, Model3D model, int background, int fill, int selectedFill) {
+        int x0 = (tile % tilesX) * TILE_SIZE, y0 = (tile / tilesX) * TILE_SIZE;
+        int x1 = Math.min(width, x0 + TILE_SIZE), y1 = Math.min(height, y0 + TILE_SIZE);
+
+        for (int y = y0; y < y1; y++) {
+            Arrays.fill(color, y * width + x0, y * width + x1, background);
+            Arrays.fill(depth, y * width + x0, y * width + x1, 0f);
+        }
+
+        // Заливка: полигон разбивается веером на треугольники
+        for (int i = faceBinStart[tile]; i < faceBinStart[tile + 1]; i++) {
+            int f = faceBins[i];
+            int start = model.getFaceStart(f);
+            int size = model.getFaceSize(f);
+            boolean selected = faceSelected.contains(f);
+            int rgb = selected ? selectedFill : fill;
+            if (shading != null) rgb = (selected ? SELECTED_SHADES : SHADES)[shading.level(f)];
+            int a = model.getIndex(start);
+            for (int j = 1; j < size - 1; j++) {
+                fillTriangle(a, model.getIndex(start + j), model.getIndex(start + j + 1), rgb, x0, y0, x1, y1);
+            }
+        }
+
+        // Контуры полигонов поверх заливки с проверкой глубины
+        for (int i = faceBinStart[tile]; i < faceBinStart[tile + 1] && drawEdges; i++) {
+            int f = faceBins[i];
+            int start = model.getFaceStart(f);
+            int size = model.getFaceSize(f);
+            int rgb = faceSelected.contains(f) ? SELECTED_EDGE_RGB : EDGE_RGB;
+            for (int j = 0; j < size; j++) {
+                drawLine(model.getIndex(start + j), model.getIndex(start + (j + 1) % size), rgb, x0, y0, x1, y1);
+            }
+        }
+
+        // Вершины
+        for (int i = vertexBinStart[tile]; i < vertexBinStart[tile + 1]; i++) {
+            int v = vertexBins[i];
+            if (vertexSelected.contains(v)) drawDot(v, 4, SELECTED_VERTEX_RGB, x0, y0, x1, y1);
+            else drawDot(v, 2, VERTEX_RGB, x0, y0, x1, y1);
+        }
+    }
+
+    // Растеризация треугольника в пределах плитки через функции рёбер
+    private void fillTriangle(int a, int b, int c, int rgb, int x0, int y0, int x1, int y1) {
+        float ax = pixelX[a], ay = pixelY[a];
+        float bx = pixelX[b], by = pixelY[b];
+        float cx = pixelX[c], cy = pixelY[c];
+        float area = (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+        if (area == 0) return;
+        if (area < 0) {
+            // Приводим к одному обходу, заливка двусторонняя
+            float tx = bx, ty = by;
+            bx = cx; by = cy;
+            cx = tx; cy = ty;
+            int t = b; b = c; c = t;
+            area = -area;
+        }
+
+        int minX = Math.max(x0, (int) Math.floor(Math.min(ax, Math.min(bx, cx))));
+        int maxX = Math.min(x1 - 1, (int) Math.ceil(Math.max(ax, Math.max(bx, cx))));
+        int minY = Math.max(y0, (int) Math.floor(Math.min(ay, Math.min(by, cy))));
+        int maxY = Math.min(y1 - 1, (int) Math.ceil(Math.max(ay, Math.max(by, cy))));
+        if (minX > maxX || minY > maxY) return;
+
+        float wa = inverseW[a] / area, wb = inverseW[b] / area, wc = inverseW[c] / area;
+        float px = minX + 0.5f, py = minY + 0.5f;
+        // Значения функций рёбер в первом пикселе и их приращения по x и y
+        float e0 = (cx - bx) * (py - by) - (cy - by) * (px - bx);
+        float e1 = (ax - cx) * (py - cy) - (ay - cy) * (px - cx);
+        float e2 = (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+        float e0dx = -(cy - by), e1dx = -(ay - cy), e2dx = -(by - ay);
+        float e0dy = cx - bx, e1dy = ax - cx, e2dy = bx - ax;
+
+        for (int y = minY; y <= maxY; y++) {
+            float r0 = e0, r1 = e1, r2 = e2;
+            int index = y * width + minX;
+            for (int x = minX; x <= maxX; x++, index++) {
+                if (r0 >= 0 && r1 >= 0 && r2 >= 0) {
+                    float w = r0 * wa + r1 * wb + r2 * wc;
+                    if (w > depth[index]) {
+                        depth[index] = w;
+                        color[index] = rgb;
+                    }
+                }
+                r0 += e0dx;
+                r1 += e1dx;
+                r2 += e2dx;
+            }
+            e0 += e0dy;
+            e1 += e1dy;
+            e2 += e2dy;
+        }
+    }
+
+    // Отрезок с проверкой глубины, обрезанный по плитке
+    private void drawLine(int a, int b, int rgb, int x0, int y0, int x1, int y1) {
+        float ax = pixelX[a] - 0.5f, ay = pixelY[a] - 0.5f;
+        float dx = pixelX[b] - 0.5f - ax, dy = pixelY[b] - 0.5f - ay;
+        float wa = inverseW[a], dw = inverseW[b] - wa;
+
+        // Отсечение параметра t по прямоугольнику плитки (Лианг — Барски)
+        float tMin = 0f, tMax = 1f;
+        for (int k = 0; k < 4; k++) {
+            float p = k == 0 ? -dx : k == 1 ? dx : k == 2 ? -dy : dy;
+            float q = k == 0 ? ax - x0 : k == 1 ? x1 - 1 - ax : k == 2 ? ay - y0 : y1 - 1 - ay;
+            if (p == 0) {
+                if (q < 0) return;
+            } else if (p < 0) {
+                tMin = Math.max(tMin, q / p);
+            } else {
+                tMax = Math.min(tMax, q / p);
+            }
+        }
+        if (tMin > tMax) return;
+
+        int steps = Math.max(1, (int) Math.ceil(Math.max(Math.abs(dx), Math.abs(dy))));
+        int first = (int) Math.floor(tMin * steps), last = (int) Math.ceil(tMax * steps);
+        for (int s = first; s <= last; s++) {
+            float t = (float) s / steps;
+            int x = Math.round(ax + dx * t), y = Math.round(ay + dy * t);
+            if (x < x0 || x >= x1 || y < y0 || y >= y1) continue;
+            int index = y * width + x;
+            if ((wa + dw * t) * DEPTH_BIAS >= depth[index]) {
+                color[index] = rgb;
+            }
+        }
+    }
+
+    // Круглый маркер вершины с проверкой глубины
+    private void drawDot(int v, int radius, int rgb, int x0, int y0, int x1, int y1) {
+        int cx = (int) pixelX[v], cy = (int) pixelY[v];
+        float w = inverseW[v] * DEPTH_BIAS;
+        for (int y = Math.max(y0, cy - radius); y < Math.min(y1, cy + radius); y++) {
+            for (int x = Math.max(x0, cx - radius); x < Math.min(x1, cx + radius); x++) {
+                int ddx = 2 * (x - cx) + 1, ddy = 2 * (y - cy) + 1;
+                if (ddx * ddx + ddy * ddy > 4 * radius * radius) continue;
+                int index = y * width + x;
+                if (w >= depth[index]) {
+                    color[index] = rgb;
+                }
+            }
+        }
+    }
+
+    private static int blend(Color color, Color background) {
+        int r = (color.getRed() + background.getRed()) / 2;
+        int g = (color.getGreen() + background.getGreen()) / 2;
+        int b = (color.getBlue() + background.getBlue()) / 2;
+        return (r << 16) | (g << 8) | b;
+    }
+}
\ No newline at end of file
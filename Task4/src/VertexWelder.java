@@ -0,0 +1,273 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Сварка совпадающих вершин при импорте: вершины ближе epsilon друг к другу сливаются в одну,
+// индексы полигонов перенумеровываются, выродившиеся и повторяющиеся полигоны удаляются.
+// Соседей ищет хэш-сетка с шагом epsilon: пары (хэш ячейки, номер вершины) в одном long сортируются,
+// и вершины одной ячейки оказываются подряд. Каждая вершина сливается с вершиной меньшего номера
+// в своей или соседней ячейке, поэтому поиск по вершинам независим и идёт параллельно по блокам
+class VertexWelder {
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int PARALLEL_THRESHOLD = 1 << 18;
+    private static final int EMPTY = -1;
+
+    // Итог сварки
+    static class Report {
+        final int verticesBefore;
+        final int verticesAfter;
+        final int facesBefore;
+        final int degenerateFaces;    // Полигоны, у которых после сварки осталось меньше трёх вершин
+        final int duplicateFaces;     // Полигоны из тех же вершин, что и полигон раньше в списке
+
+        Report(int verticesBefore, int verticesAfter, int facesBefore, int degenerateFaces, int duplicateFaces) {
+            this.verticesBefore = verticesBefore;
+            this.verticesAfter = verticesAfter;
+            this.facesBefore = facesBefore;
+            this.degenerateFaces = degenerateFaces;
+            this.duplicateFaces = duplicateFaces;
+        }
+
+        public int getFacesAfter() {
+            return facesBefore - degenerateFaces - duplicateFaces;
+        }
+
+        @Override
+        public String toString() {
+            return "welded " + verticesBefore + " -> " + verticesAfter + " vertices, removed "
+                    + degenerateFaces + " degenerate and " + duplicateFaces + " duplicate faces";
+        }
+    }
+
+    // Сварка на месте; epsilon = 0 сливает только вершины с точно равными координатами
+    public static Report weld(Model3D model, float epsilon) {
+        return weld(model, epsilon, false);
+    }
+
+    // shared = true: массивы модели разделяет снимок, который ещё может рисоваться (показ модели по частям),
+    // поэтому сварка идёт в копиях массивов, а модель получает их через setMesh
+    public static Report weld(Model3D model, float epsilon, boolean shared) {
+        int vertexCount = model.getVertexCount();
+        int faceCount = model.getFaceCount();
+        boolean parallel = vertexCount + faceCount >= PARALLEL_THRESHOLD;
+        float[] coords = shared ? Arrays.copyOf(model.getCoords(), Math.max(1, vertexCount * 3)) : model.getCoords();
+
+        int[] target = findTargets(coords, vertexCount, epsilon, parallel);
+
+        // Новые номера: оставшиеся вершины нумеруются по порядку, слитые получают номер своей цели
+        int chunks = (vertexCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int[] chunkStart = new int[chunks + 1];
+        forEachChunk(vertexCount, parallel, (from, to) -> {
+            int kept = 0;
+            for (int v = from; v < to; v++) {
+                if (target[v] == v) kept++;
+            }
+            chunkStart[from / CHUNK_SIZE + 1] = kept;
+        });
+        for (int c = 0; c < chunks; c++) chunkStart[c + 1] += chunkStart[c];
+        int[] remap = new int[vertexCount];
+        forEachChunk(vertexCount, parallel, (from, to) -> {
+            int next = chunkStart[from / CHUNK_SIZE];
+            for (int v = from; v < to; v++) {
+                if (target[v] == v) remap[v] = next++;
+            }
+        });
+        forEachChunk(vertexCount, parallel, (from, to) -> {
+            for (int v = from; v < to; v++) {
+                if (target[v] != v) remap[v] = remap[target[v]];
+            }
+        });
+        int newVertexCount = chunkStart[chunks];
+
+        // Сдвиг координат оставшихся вершин: новая позиция никогда не больше старой
+        for (int v = 0; v < vertexCount; v++) {
+            if (target[v] == v && remap[v] != v) System.arraycopy(coords, v * 3, coords, remap[v] * 3, 3);
+        }
+
+        // Перенумерация полигонов на их же местах с удалением повторов подряд идущих вершин
+        int[] offsets = shared ? Arrays.copyOf(model.getFaceOffsets(), faceCount + 1) : model.getFaceOffsets();
+        int[] indices = shared ? Arrays.copyOf(model.getFaceIndices(), Math.max(1, model.getIndexCount()))
+                : model.getFaceIndices();
+        int[] sizes = new int[faceCount];
+        long[] faceKeys = new long[faceCount];
+        forEachChunk(faceCount, parallel, (from, to) -> {
+            int[] sorted = new int[16];
+            for (int f = from; f < to; f++) {
+                int size = remapFace(indices, offsets[f], offsets[f + 1], remap);
+                sizes[f] = size;
+                if (size < 3) {
+                    faceKeys[f] = Long.MAX_VALUE;   // В конец сортировки, при поиске повторов не рассматривается
+                    continue;
+                }
+                if (sorted.length < size) sorted = new int[size];
+                System.arraycopy(indices, offsets[f], sorted, 0, size);
+                Arrays.sort(sorted, 0, size);
+                int hash = size;
+                for (int j = 0; j < size; j++) hash = hash * 0x9E3779B1 + sorted[j];
+                faceKeys[f] = (long) (hash & 0x7FFFFFFF) << 32 | f;
+            }
+        });
+
+        // Повторы: полигоны с одинаковым хэшем стоят подряд по возрастанию номера, первый остаётся
+        if (parallel) Arrays.parallelSort(faceKeys); else Arrays.sort(faceKeys);
+        boolean[] keep = new boolean[faceCount];
+        int degenerate = 0, duplicates = 0;
+        for (int i = 0; i < faceCount; ) {
+            if (faceKeys[i] == Long.MAX_VALUE) {
+                degenerate = faceCount - i;
+                break;
+            }
+            int end = i + 1;
+            while (end < faceCount && faceKeys[end] >>> 32 == faceKeys[i] >>> 32) end++;
+            for (int j = i; j < end; j++) {
+                int face = (int) faceKeys[j];
+                boolean duplicate = false;
+                for (int k = i; k < j && !duplicate; k++) {
+                    int other = (int) faceKeys[k];
+                    duplicate = keep[other] && sameVertices(indices, offsets[face], offsets[other], sizes[face], sizes[other]);
+                }
+                keep[face] = !duplicate;
+                if (duplicate) duplicates++;
+            }
+            i = end;
+        }
+
+        // Сдвиг оставшихся полигонов к началу массивов
+        int faces = 0, write = 0;
+        for (int f = 0; f < faceCount; f++) {
+            if (!keep[f]) continue;
+            int start = offsets[f];
+            if (write != start) System.arraycopy(indices, start, indices, write, sizes[f]);
+            offsets[faces++] = write;
+            write += sizes[f];
+        }
+        offsets[faces] = write;
+
+        model.setMesh(coords, newVertexCount, offsets, indices, faces);
+        return new Report(vertexCount, newVertexCount, faceCount, degenerate, duplicates);
+    }
+
+    // Для каждой вершины — вершина, с которой она сливается (она сама, если сливаться не с кем)
+    private static int[] findTargets(float[] coords, int vertexCount, float epsilon, boolean parallel) {
+        // Пары (хэш ячейки, номер) — после сортировки вершины каждой ячейки идут подряд по возрастанию номера
+        long[] cells = new long[vertexCount];
+        forEachChunk(vertexCount, parallel, (from, to) -> {
+            for (int v = from; v < to; v++) {
+                cells[v] = (long) cellHash(coords, v, epsilon, 0, 0, 0) << 32 | v;
+            }
+        });
+        if (parallel) Arrays.parallelSort(cells); else Arrays.sort(cells);
+
+        // Начало каждой ячейки в отсортированном массиве: открытая адресация по хэшу ячейки
+        int capacity = Integer.highestOneBit(Math.max(16, vertexCount) * 2 - 1) << 1;
+        int mask = capacity - 1;
+        int[] tableHash = new int[capacity];
+        int[] tableStart = new int[capacity];
+        Arrays.fill(tableStart, EMPTY);
+        for (int i = 0; i < vertexCount; i++) {
+            int hash = (int) (cells[i] >> 32);
+            if (i > 0 && (int) (cells[i - 1] >> 32) == hash) continue;
+            int slot = mix(hash) & mask;
+            while (tableStart[slot] != EMPTY) slot = slot + 1 & mask;
+            tableHash[slot] = hash;
+            tableStart[slot] = i;
+        }
+
+        int[] target = new int[vertexCount];
+        int reach = epsilon > 0 ? 1 : 0;      // При epsilon = 0 совпадающие вершины всегда в одной ячейке
+        float limit = epsilon * epsilon;
+        forEachChunk(vertexCount, parallel, (from, to) -> {
+            for (int v = from; v < to; v++) {
+                int best = v;
+                for (int dx = -reach; dx <= reach; dx++) {
+                    for (int dy = -reach; dy <= reach; dy++) {
+                        for (int dz = -reach; dz <= reach; dz++) {
+                            int hash = cellHash(coords, v, epsilon, dx, dy, dz);
+                            int slot = mix(hash) & mask;
+                            while (tableStart[slot] != EMPTY && tableHash[slot] != hash) slot = slot + 1 & mask;
+                            if (tableStart[slot] == EMPTY) continue;
+                            // Вершины ячейки по возрастанию номера: дальше лучшей найденной искать незачем
+                            for (int i = tableStart[slot]; i < vertexCount && (int) (cells[i] >> 32) == hash; i++) {
+                                int u = (int) cells[i];
+                                if (u >= best) break;
+                                if (close(coords, u, v, epsilon, limit)) {
+                                    best = u;
+                                    break;
+                                }
+                            }
+                        }
+                    }
+                }
+                target[v] = best;
+            }
+        });
+
+        // Цепочки: цель вершины сама могла слиться с вершиной меньшего номера
+        for (int v = 0; v < vertexCount; v++) target[v] = target[target[v]];
+        return target;
+    }
+
+    // Хэш ячейки сетки со сдвигом (dx, dy, dz); при epsilon = 0 ячейка — точные координаты
+    private static int cellHash(float[] coords, int v, float epsilon, int dx, int dy, int dz) {
+        long x, y, z;
+        if (epsilon > 0) {
+            x = (long) Math.floor(coords[v * 3] / epsilon) + dx;
+            y = (long) Math.floor(coords[v * 3 + 1] / epsilon) + dy;
+            z = (long) Math.floor(coords[v * 3 + 2] / epsilon) + dz;
+        } else {
+            // + 0.0f превращает -0.0 в 0.0, чтобы равные координаты давали равные биты
+            x = Float.floatToIntBits(coords[v * 3] + 0.0f);
+            y = Float.floatToIntBits(coords[v * 3 + 1] + 0.0f);
+            z = Float.floatToIntBits(coords[v * 3 + 2] + 0.0f);
+        }
+        long hash = x * 0x9E3779B97F4A7C15L ^ y * 0xC2B2AE3D27D4EB4FL ^ z * 0x165667B19E3779F9L;
+        return (int) (hash ^ hash >>> 32);
+    }
+
+    private static int mix(int hash) {
+        return hash * 0x9E3779B1 ^ hash >>> 16;
+    }
+
+    private static boolean close(float[] coords, int u, int v, float epsilon, float limit) {
+        float dx = coords[u * 3] - coords[v * 3];
+        float dy = coords[u * 3 + 1] - coords[v * 3 + 1];
+        float dz = coords[u * 3 + 2] - coords[v * 3 + 2];
+        if (epsilon == 0) return dx == 0 && dy == 0 && dz == 0;
+        return dx * dx + dy * dy + dz * dz <= limit;
+    }
+
+    // Перенумерация индексов полигона [start, end) с удалением повторов соседних вершин (и последней с первой).
+    // Возвращает новый размер; полигон с индексом вне модели считается выродившимся
+    private static int remapFace(int[] indices, int start, int end, int[] remap) {
+        int size = 0;
+        for (int i = start; i < end; i++) {
+            int v = indices[i];
+            if (v < 0 || v >= remap.length) return 0;
+            int mapped = remap[v];
+            if (size > 0 && indices[start + size - 1] == mapped) continue;
+            indices[start + size++] = mapped;
+        }
+        while (size > 1 && indices[start + size - 1] == indices[start]) size--;
+        return size;
+    }
+
+    // Одинаковый набор вершин (без учёта начала обхода и направления)
+    private static boolean sameVertices(int[] indices, int a, int b, int sizeA, int sizeB) {
+        if (sizeA != sizeB) return false;
+        int[] first = Arrays.copyOfRange(indices, a, a + sizeA);
+        int[] second = Arrays.copyOfRange(indices, b, b + sizeB);
+        Arrays.sort(first);
+        Arrays.sort(second);
+        return Arrays.equals(first, second);
+    }
+
+    private interface ChunkAction {
+        void run(int from, int to);
+    }
+
+    private static void forEachChunk(int count, boolean parallel, ChunkAction action) {
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream range = IntStream.range(0, chunks);
+        if (parallel) range = range.parallel();
+        range.forEach(c -> action.run(c * CHUNK_SIZE, Math.min(count, (c + 1) * CHUNK_SIZE)));
+    }
+}
\ No newline at end of file
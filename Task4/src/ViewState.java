@@ -0,0 +1,73 @@
+import java.awt.Color;
+
+// Параметры одного кадра: что и как рисовать.
+// Для фоновой отрисовки создаётся снимок с копиями множеств выбора
+class ViewState {
+    Model3D model;
+    int modelVersion;
+    double rotationX;
+    double rotationY;
+    double scale;
+    int width;
+    int height;
+    Color background;
+    SelectionSet selectedVertices;
+    SelectionSet selectedPolygons;
+    int selectionVersion;
+    boolean depthBuffer;    // Растеризация с буфером глубины вместо Java2D
+    boolean cullBackFaces;  // Отсечение граней, повёрнутых от камеры
+    boolean cullFrustum;    // Отсечение граней за пределами панели
+    boolean partial;        // Модель ещё загружается (таблицы по модели не строятся)
+    boolean batchedDrawing; // Полигоны и вершины рисуются пакетами по стилю
+    boolean antialiasing;   // Сглаживание Java2D (выключается во время вращения)
+    boolean flatShading;    // Непрозрачная заливка с яркостью по нормали полигона
+    boolean drawEdges;      // Контуры полигонов
+    FrameProfiler profiler; // Замер фаз кадра (null, если замеры выключены)
+
+    // Копия, не зависящая от дальнейших изменений выбора в потоке Swing
+    ViewState snapshot() {
+        ViewState copy = new ViewState();
+        copy.model = model;
+        copy.modelVersion = modelVersion;
+        copy.rotationX = rotationX;
+        copy.rotationY = rotationY;
+        copy.scale = scale;
+        copy.width = width;
+        copy.height = height;
+        copy.background = background;
+        copy.selectedVertices = selectedVertices.copy();
+        copy.selectedPolygons = selectedPolygons.copy();
+        copy.selectionVersion = selectionVersion;
+        copy.depthBuffer = depthBuffer;
+        copy.cullBackFaces = cullBackFaces;
+        copy.cullFrustum = cullFrustum;
+        copy.partial = partial;
+        copy.batchedDrawing = batchedDrawing;
+        copy.antialiasing = antialiasing;
+        copy.flatShading = flatShading;
+        copy.drawEdges = drawEdges;
+        copy.profiler = profiler;
+        return copy;
+    }
+
+    // Совпадает ли кадр с другим по всем параметрам, влияющим на изображение
+    boolean sameFrame(ViewState other) {
+        return other != null
+                && model == other.model
+                && modelVersion == other.modelVersion
+                && rotationX == other.rotationX
+                && rotationY == other.rotationY
+                && scale == other.scale
+                && width == other.width
+                && height == other.height
+                && background.equals(other.background)
+                && selectionVersion == other.selectionVersion
+                && depthBuffer == other.depthBuffer
+                && cullBackFaces == other.cullBackFaces
+                && cullFrustum == other.cullFrustum
+                && batchedDrawing == other.batchedDrawing
+                && antialiasing == other.antialiasing
+                && flatShading == other.flatShading
+                && drawEdges == other.drawEdges;
+    }
+}
\ No newline at end of file